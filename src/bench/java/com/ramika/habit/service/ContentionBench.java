@@ -0,0 +1,139 @@
+package com.ramika.habit.service;
+
+import com.ramika.habit.exceptions.HabitAlreadyCompleteException;
+import com.ramika.habit.model.Category;
+import com.ramika.habit.model.Habit;
+import com.ramika.habit.model.Priority;
+
+import java.nio.file.Files;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HabitService throughput under contention, for 1, 2, 4 ... threads up to the core count.
+ * Each thread runs a mix of lock-free reads (id, name and day lookups), per-habit writes
+ * (priority, today's completion) and structural writes (rename, create + remove).
+ * Then the cost of one structural change as the number of habits grows, which should stay flat.
+ *
+ *   gradle bench -PbenchArgs="<habits> <seconds per run> <structural per mille>"
+ */
+public final class ContentionBench {
+    private ContentionBench() {}
+
+    public static void main(String[] args) throws Exception {
+        int habits = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+        int structuralPerMille = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        HabitService service = newService(habits);
+        List<UUID> ids = new ArrayList<>(service.getAllHabits().keySet());
+        System.out.printf("habits=%d cores=%d mix: 90%% reads, %.1f%% structural, rest per-habit writes%n",
+                habits, cores, structuralPerMille / 10.0);
+
+        run(service, ids, 1, 0.5, structuralPerMille); // warm-up
+        double base = 0;
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            double opsPerSec = run(service, ids, threads, seconds, structuralPerMille);
+            if (threads == 1) base = opsPerSec;
+            System.out.printf("threads=%-3d %,12.0f ops/s  x%.2f%n", threads, opsPerSec, opsPerSec / base);
+            if (threads < cores && threads * 2 > cores) threads = cores / 2; // end on the core count
+        }
+
+        System.out.println("one rename + create + remove, by habit count:");
+        for (int n = 1_000; n <= 100_000; n *= 10) {
+            HabitService s = n == habits ? service : newService(n);
+            UUID id = s.getAllHabits().keySet().iterator().next();
+            int reps = 20_000;
+            for (int i = 0; i < reps / 4; i++) structural(s, id, i); // warm-up
+            long t0 = System.nanoTime();
+            for (int i = 0; i < reps; i++) structural(s, id, i);
+            System.out.printf("habits=%-7d %6.2f us%n", n, (System.nanoTime() - t0) / 1e3 / reps);
+        }
+    }
+
+    private static HabitService newService(int habits) throws Exception {
+        HabitService s = new HabitService(Files.createTempDirectory("contention-bench"));
+        s.getPersistence().enableWriteBehind(3_600_000); // keep disk writes out of the numbers
+        List<Habit> seed = new ArrayList<>(habits);
+        Priority[] priorities = Priority.values();
+        Category[] categories = Category.values();
+        for (int i = 0; i < habits; i++) {
+            seed.add(new Habit(UUID.randomUUID(), "habit " + i, priorities[i % priorities.length],
+                    categories[i % categories.length], EnumSet.allOf(DayOfWeek.class)));
+        }
+        s.hydrate(seed);
+        return s;
+    }
+
+    private static void structural(HabitService s, UUID id, int i) {
+        s.changeName(id, "renamed " + (i & 7));
+        UUID tmp = s.createHabit("tmp", Priority.LOW, Category.OTHER, EnumSet.allOf(DayOfWeek.class));
+        try {
+            s.removeHabit(tmp);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static double run(HabitService s, List<UUID> ids, int threads, double seconds, int structuralPerMille)
+            throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        DayOfWeek[] days = DayOfWeek.values();
+        for (int t = 0; t < threads; t++) {
+            Thread w = new Thread(() -> {
+                ThreadLocalRandom r = ThreadLocalRandom.current();
+                long done = 0;
+                try {
+                    start.await();
+                    while (!stop.get()) {
+                        UUID id = ids.get(r.nextInt(ids.size()));
+                        int roll = r.nextInt(1000);
+                        if (roll < 900) {
+                            switch (roll % 3) {
+                                case 0 -> s.getAllHabits().get(id);
+                                case 1 -> s.findIdByName("habit " + r.nextInt(ids.size()));
+                                default -> s.getActiveHabitsOn(days[roll % 7]).containsKey(id);
+                            }
+                        } else if (roll < 1000 - structuralPerMille) {
+                            if ((roll & 1) == 0) {
+                                s.changePriority(id, Priority.values()[roll % 3]);
+                            } else {
+                                try {
+                                    s.setCompletedToday(id, r.nextBoolean());
+                                } catch (HabitAlreadyCompleteException raced) {
+                                    // another thread marked it first
+                                }
+                            }
+                        } else {
+                            structural(s, id, roll);
+                        }
+                        done++;
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    ops.add(done);
+                }
+            }, "bench-" + t);
+            workers.add(w);
+            w.start();
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        Thread.sleep((long) (seconds * 1000));
+        stop.set(true);
+        for (Thread w : workers) w.join();
+        return ops.sum() / ((System.nanoTime() - t0) / 1e9);
+    }
+}
@@ -0,0 +1,82 @@
+package com.ramika.habit.service;
+
+import com.ramika.habit.model.Category;
+import com.ramika.habit.model.Habit;
+import com.ramika.habit.model.Priority;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Cost of editing one completion in the middle of a habit's history (undo, import, backfill):
+ * SummaryService.completionChanged after clearing / setting a random past day. Week, month and
+ * year rollups are touched each time; only the run through the edited day is walked, and a
+ * bucket is rescanned only when a clear splits its longest run.
+ *
+ * Runs for several history lengths and completion densities (high density = long runs, the
+ * worst case for the walk).
+ *
+ *   gradle bench -PbenchMain=com.ramika.habit.service.EditBench -PbenchArgs="<habits> <edits>"
+ */
+public final class EditBench {
+    private EditBench() {}
+
+    public static void main(String[] args) {
+        int habits = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int edits = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        System.out.println("years density    clear us    set us");
+        for (int years : new int[] {1, 5, 20}) {
+            for (double density : new double[] {0.5, 0.95}) {
+                run(habits, edits / 10, years, density); // warm-up
+                double[] us = run(habits, edits, years, density);
+                System.out.printf("%5d %7.0f%% %10.2f %9.2f%n", years, density * 100, us[0], us[1]);
+            }
+        }
+    }
+
+    // average microseconds per {clear, set} of a random completed day
+    private static double[] run(int habits, int edits, int years, double density) {
+        Random r = new Random(years * 31L + (long) (density * 100));
+        long today = LocalDate.now().toEpochDay();
+        int days = years * 365;
+        SummaryService summary = new SummaryService();
+        Habit[] all = new Habit[habits];
+        long[] completed = new long[days];
+        for (int i = 0; i < habits; i++) {
+            Habit h = new Habit(UUID.randomUUID(), "habit " + i, Priority.MEDIUM, Category.OTHER,
+                    EnumSet.allOf(DayOfWeek.class));
+            int n = 0;
+            for (int d = 1; d <= days; d++) if (r.nextDouble() < density) completed[n++] = today - d;
+            h.setCompletedDays(completed, n);
+            all[i] = h;
+        }
+        summary.putAll(List.of(all), Map.of());
+
+        long clearNanos = 0;
+        long setNanos = 0;
+        int done = 0;
+        while (done < edits) {
+            Habit h = all[r.nextInt(habits)];
+            long day = today - days / 4 - r.nextInt(days / 2); // middle half of the history
+            if (!h.isCompletedOnEpochDay(day)) continue;
+
+            long t0 = System.nanoTime();
+            h.setCompletedOnEpochDay(day, false);
+            summary.completionChanged(h, day);
+            long t1 = System.nanoTime();
+            h.setCompletedOnEpochDay(day, true);
+            summary.completionChanged(h, day);
+            long t2 = System.nanoTime();
+            clearNanos += t1 - t0;
+            setNanos += t2 - t1;
+            done++;
+        }
+        return new double[] {clearNanos / 1e3 / edits, setNanos / 1e3 / edits};
+    }
+}
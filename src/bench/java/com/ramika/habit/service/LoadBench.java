@@ -0,0 +1,106 @@
+package com.ramika.habit.service;
+
+import com.ramika.habit.model.Category;
+import com.ramika.habit.model.Habit;
+import com.ramika.habit.model.Priority;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk summary load (SummaryService.putAll, as used by hydrate) against fork-join parallelism:
+ * time and speedup over one worker for 1, 2, 4 ... workers up to the core count. A reader
+ * thread queries the summary throughout and reports its longest wait, which stays small since
+ * the build runs outside the summary's lock.
+ *
+ *   gradle bench -PbenchMain=com.ramika.habit.service.LoadBench -PbenchArgs="<habits> <years> <runs>"
+ */
+public final class LoadBench {
+    private LoadBench() {}
+
+    public static void main(String[] args) throws Exception {
+        int habits = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int years = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        List<Habit> all = habits(habits, years);
+        System.out.printf("%,d habits x %d years of history, cores=%d%n", habits, years, cores);
+
+        load(all, 1, runs); // warm-up
+        double base = 0;
+        for (int workers = 1; workers <= cores; workers *= 2) {
+            double[] r = load(all, workers, runs);
+            if (workers == 1) base = r[0];
+            System.out.printf("workers=%-3d %8.1f ms  x%.2f  reader waited at most %.2f ms%n",
+                    workers, r[0], base / r[0], r[1]);
+            if (workers < cores && workers * 2 > cores) workers = cores / 2; // end on the core count
+        }
+    }
+
+    // best-of-runs load time and the reader's longest single query, in ms
+    private static double[] load(List<Habit> all, int workers, int runs) throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        double best = Double.MAX_VALUE;
+        long worstQuery = 0;
+        try {
+            for (int run = 0; run < runs; run++) {
+                SummaryService summary = new SummaryService();
+                summary.putAll(all.subList(0, 16), Map.of()); // something to query meanwhile
+                LocalDate today = LocalDate.now();
+
+                AtomicBoolean stop = new AtomicBoolean();
+                AtomicLong longest = new AtomicLong();
+                Thread reader = new Thread(() -> {
+                    while (!stop.get()) {
+                        long t0 = System.nanoTime();
+                        summary.completionRate(today.minusDays(30), today);
+                        longest.accumulateAndGet(System.nanoTime() - t0, Math::max);
+                    }
+                }, "bench-reader");
+                reader.start();
+
+                long t0 = System.nanoTime();
+                pool.submit(() -> summary.putAll(all, Map.of())).get();
+                best = Math.min(best, (System.nanoTime() - t0) / 1e6);
+
+                stop.set(true);
+                reader.join();
+                worstQuery = Math.max(worstQuery, longest.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return new double[] {best, worstQuery / 1e6};
+    }
+
+    private static List<Habit> habits(int count, int years) {
+        Random r = new Random(11);
+        long today = LocalDate.now().toEpochDay();
+        int days = years * 365;
+        long[] completed = new long[days];
+        Category[] categories = Category.values();
+        List<Habit> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            EnumSet<DayOfWeek> schedule = EnumSet.noneOf(DayOfWeek.class);
+            for (DayOfWeek d : DayOfWeek.values()) if (r.nextInt(4) > 0) schedule.add(d);
+            if (schedule.isEmpty()) schedule.add(DayOfWeek.MONDAY);
+            Habit h = new Habit(UUID.randomUUID(), "habit " + i, Priority.MEDIUM,
+                    categories[i % categories.length], schedule);
+            int n = 0;
+            for (int d = 1; d <= days; d++) if (r.nextInt(3) > 0) completed[n++] = today - d;
+            h.setCompletedDays(completed, n);
+            out.add(h);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,99 @@
+package com.ramika.habit.service;
+
+import com.ramika.habit.model.Category;
+import com.ramika.habit.model.Habit;
+import com.ramika.habit.model.Priority;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Cost of keeping a habit's streaks current while single days of a long history are toggled:
+ * Habit.setCompletedOnEpochDay on a random past day followed by getCurrentStreak and
+ * getLongestStreak, which the StreakTracker answers after merging or splitting at most two
+ * runs. For comparison, the same two queries on a fresh copy, which rebuilds the tracker from
+ * the whole history (what every toggle would cost without it).
+ *
+ * Runs for several history lengths, completion densities (high density = few long runs) and
+ * schedules (daily, and three days a week, where rest days sit inside every run).
+ *
+ *   gradle bench -PbenchMain=com.ramika.habit.service.StreakBench -PbenchArgs="<habits> <edits>"
+ */
+public final class StreakBench {
+    private StreakBench() {}
+
+    private static final EnumSet<DayOfWeek> DAILY = EnumSet.allOf(DayOfWeek.class);
+    private static final EnumSet<DayOfWeek> MON_WED_FRI =
+            EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY, DayOfWeek.FRIDAY);
+
+    static volatile long sink; // keeps the streak queries from being optimized away
+
+    public static void main(String[] args) {
+        int habits = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int edits = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        System.out.println("years density schedule    clear us    set us  rebuild us");
+        for (int years : new int[] {1, 5, 20}) {
+            for (double density : new double[] {0.5, 0.95}) {
+                for (EnumSet<DayOfWeek> schedule : List.of(DAILY, MON_WED_FRI)) {
+                    run(habits, edits / 10, years, density, schedule); // warm-up
+                    double[] us = run(habits, edits, years, density, schedule);
+                    System.out.printf("%5d %6.0f%% %8s %11.2f %9.2f %11.2f%n", years, density * 100,
+                            schedule == DAILY ? "daily" : "3/week", us[0], us[1], us[2]);
+                }
+            }
+        }
+    }
+
+    // average microseconds per {clear + streaks, set + streaks, streaks from scratch}
+    private static double[] run(int habits, int edits, int years, double density, EnumSet<DayOfWeek> schedule) {
+        Random r = new Random(years * 31L + (long) (density * 100) + schedule.size());
+        long today = LocalDate.now().toEpochDay();
+        int days = years * 365;
+        Habit[] all = new Habit[habits];
+        long[] completed = new long[days];
+        for (int i = 0; i < habits; i++) {
+            Habit h = new Habit(UUID.randomUUID(), "habit " + i, Priority.MEDIUM, Category.OTHER,
+                    EnumSet.copyOf(schedule));
+            int n = 0;
+            for (int d = 1; d <= days; d++) if (r.nextDouble() < density) completed[n++] = today - d;
+            h.setCompletedDays(completed, n);
+            sink += h.getLongestStreak(); // build the tracker before timing edits against it
+            all[i] = h;
+        }
+
+        long clearNanos = 0;
+        long setNanos = 0;
+        int done = 0;
+        while (done < edits) {
+            Habit h = all[r.nextInt(habits)];
+            long day = today - days / 4 - r.nextInt(days / 2); // middle half of the history
+            if (!h.isCompletedOnEpochDay(day)) continue;
+
+            long t0 = System.nanoTime();
+            h.setCompletedOnEpochDay(day, false);
+            sink += h.getCurrentStreak() + h.getLongestStreak();
+            long t1 = System.nanoTime();
+            h.setCompletedOnEpochDay(day, true);
+            sink += h.getCurrentStreak() + h.getLongestStreak();
+            long t2 = System.nanoTime();
+            clearNanos += t1 - t0;
+            setNanos += t2 - t1;
+            done++;
+        }
+
+        int rebuilds = Math.max(1, Math.min(edits / 100, 2_000));
+        long rebuildNanos = 0;
+        for (int i = 0; i < rebuilds; i++) {
+            Habit c = all[i % habits].copy(); // no tracker yet: the first query builds it
+            long t0 = System.nanoTime();
+            sink += c.getCurrentStreak() + c.getLongestStreak();
+            rebuildNanos += System.nanoTime() - t0;
+        }
+        return new double[] {clearNanos / 1e3 / edits, setNanos / 1e3 / edits, rebuildNanos / 1e3 / rebuilds};
+    }
+}
@@ -0,0 +1,168 @@
+package com.ramika.habit.service;
+
+import com.ramika.habit.exceptions.HabitAlreadyCompleteException;
+import com.ramika.habit.model.Category;
+import com.ramika.habit.model.Habit;
+import com.ramika.habit.model.Priority;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * TenantRegistry with many more tenants on disk than fit its memory budget.
+ *
+ * 1. cold scan: acquire every tenant once; load rate and latency, then how many stay resident,
+ *    the registry's estimate of their bytes against the budget, and the heap they really hold.
+ * 2. LRU: most acquires go to a hot set sized well under the budget, the rest stream through
+ *    cold tenants. Once warm, hot tenants should (almost) never be reloaded while cold ones
+ *    always are; loads are counted through the registry's setup hook.
+ *
+ *   gradle bench -PbenchMain=com.ramika.habit.service.TenantBench \
+ *       -PbenchArgs="<tenants> <habits per tenant> <budget MB> <acquires>"
+ */
+public final class TenantBench {
+    private TenantBench() {}
+
+    public static void main(String[] args) throws Exception {
+        int tenants = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int habits = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        long budget = (args.length > 2 ? Long.parseLong(args[2]) : 64) << 20;
+        int acquires = args.length > 3 ? Integer.parseInt(args[3]) : 200_000;
+
+        Path root = Files.createTempDirectory("tenant-bench");
+        AtomicLong loads = new AtomicLong();
+        Consumer<Persistence> setup = p -> {
+            loads.incrementAndGet();
+            p.setCodec(Persistence.Codec.BINARY);
+            p.enableJournal(1 << 20);
+        };
+
+        long t0 = System.nanoTime();
+        seed(root, tenants, habits, setup);
+        System.out.printf("seeded %,d tenants x %d habits (1y history) in %.1f s%n",
+                tenants, habits, (System.nanoTime() - t0) / 1e9);
+
+        long baseHeap = usedHeap();
+        try (TenantRegistry registry = new TenantRegistry(root, budget, setup)) {
+            // 1. cold scan
+            long[] nanos = new long[tenants];
+            loads.set(0);
+            t0 = System.nanoTime();
+            for (int i = 0; i < tenants; i++) {
+                long a = System.nanoTime();
+                try (TenantRegistry.Lease lease = registry.acquire(tenantId(i))) {
+                    lease.service().getActiveHabits().size();
+                }
+                nanos[i] = System.nanoTime() - a;
+            }
+            double secs = (System.nanoTime() - t0) / 1e9;
+            Arrays.sort(nanos);
+            System.out.printf("cold scan: %,d loads, %,.0f acquires/s, p50 %.0f us, p99 %.0f us%n",
+                    loads.get(), tenants / secs, nanos[tenants / 2] / 1e3, nanos[tenants * 99 / 100] / 1e3);
+            report(registry, budget, baseHeap);
+
+            // 2. LRU under a hot/cold mix
+            int resident = registry.residentCount();
+            int hot = Math.max(1, resident / 4);
+            Random r = new Random(42);
+            long hotHits = 0, hotLoads = 0, coldHits = 0, coldLoads = 0;
+            int nextCold = hot;
+            t0 = System.nanoTime();
+            for (int i = 0; i < acquires; i++) {
+                boolean isHot = r.nextInt(10) < 8;
+                int tenant;
+                if (isHot) {
+                    tenant = r.nextInt(hot);
+                } else {
+                    tenant = nextCold;
+                    nextCold = nextCold + 1 < tenants ? nextCold + 1 : hot;
+                }
+                long before = loads.get();
+                try (TenantRegistry.Lease lease = registry.acquire(tenantId(tenant))) {
+                    HabitService s = lease.service();
+                    if (r.nextInt(10) == 0) {
+                        UUID id = s.getAllHabits().keySet().iterator().next();
+                        try {
+                            s.setCompletedToday(id, r.nextBoolean());
+                        } catch (HabitAlreadyCompleteException already) {
+                            // fine either way
+                        }
+                    } else {
+                        s.getActiveHabitsOn(DayOfWeek.MONDAY).size();
+                    }
+                }
+                boolean loaded = loads.get() != before;
+                if (i < acquires / 10) continue; // warm-up: the hot set is still being pulled in
+                if (isHot) {
+                    if (loaded) hotLoads++; else hotHits++;
+                } else {
+                    if (loaded) coldLoads++; else coldHits++;
+                }
+            }
+            secs = (System.nanoTime() - t0) / 1e9;
+            System.out.printf("LRU mix: %,.0f acquires/s, 80%% over %,d hot tenants, 20%% streaming %,d cold%n",
+                    acquires / secs, hot, tenants - hot);
+            System.out.printf("  hot  reloaded %6.2f%% (%,d of %,d)%n", pct(hotLoads, hotHits), hotLoads, hotLoads + hotHits);
+            System.out.printf("  cold reloaded %6.2f%% (%,d of %,d)%n", pct(coldLoads, coldHits), coldLoads, coldLoads + coldHits);
+            report(registry, budget, baseHeap);
+        }
+    }
+
+    // write every tenant's snapshot through a registry that keeps none of them
+    private static void seed(Path root, int tenants, int habits, Consumer<Persistence> setup) {
+        long today = LocalDate.now().toEpochDay();
+        Random r = new Random(7);
+        Priority[] priorities = Priority.values();
+        Category[] categories = Category.values();
+        long[] days = new long[365];
+        try (TenantRegistry registry = new TenantRegistry(root, 1, setup)) {
+            for (int i = 0; i < tenants; i++) {
+                List<Habit> seed = new ArrayList<>(habits);
+                for (int k = 0; k < habits; k++) {
+                    Habit h = new Habit(UUID.randomUUID(), "habit " + k, priorities[k % priorities.length],
+                            categories[k % categories.length], EnumSet.allOf(DayOfWeek.class));
+                    int n = 0;
+                    for (int d = 1; d <= 365; d++) if (r.nextBoolean()) days[n++] = today - d;
+                    h.setCompletedDays(days, n);
+                    seed.add(h);
+                }
+                try (TenantRegistry.Lease lease = registry.acquire(tenantId(i))) {
+                    lease.service().hydrate(seed);
+                    lease.service().getPersistence().saveSnapshot();
+                }
+            }
+        }
+    }
+
+    private static void report(TenantRegistry registry, long budget, long baseHeap) {
+        int resident = registry.residentCount();
+        long estimate = registry.residentBytes();
+        long heap = usedHeap() - baseHeap;
+        System.out.printf("  resident %,d tenants, estimate %.1f MB of %.1f MB budget, heap held %.1f MB (x%.2f estimate)%n",
+                resident, estimate / 1048576.0, budget / 1048576.0, heap / 1048576.0, (double) heap / Math.max(1, estimate));
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static double pct(long part, long rest) {
+        return part + rest == 0 ? 0 : 100.0 * part / (part + rest);
+    }
+
+    private static String tenantId(int i) {
+        return "tenant-" + i;
+    }
+}
@@ -17,6 +17,8 @@ import java.util.List;
 
 public class AddHabitScene {
 
+    private final HabitService service = HabitService.getInstance();
+
     private final Stage stage;
 
     // Fields (accessible later in controller logic)
@@ -203,7 +205,7 @@ public class AddHabitScene {
         }
 
         // 5) Create and go back
-        HabitService.createHabit(title, priorityValue, categoryValue, schedule);
+        service.createHabit(title, priorityValue, categoryValue, schedule);
         goBack();
     }
 
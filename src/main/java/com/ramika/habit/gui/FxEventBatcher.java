@@ -0,0 +1,71 @@
+package com.ramika.habit.gui;
+
+import com.ramika.habit.service.HabitEvent;
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * Subscribes to HabitService.events() and hands them to the UI in bursts: everything that
+ * arrives before the FX thread gets round to it is delivered as one list, one runLater each.
+ */
+final class FxEventBatcher implements Flow.Subscriber<HabitEvent> {
+    private final Consumer<List<HabitEvent>> onFxThread;
+
+    private List<HabitEvent> pending = new ArrayList<>(); // guarded by this
+    private boolean drainScheduled;                       // guarded by this
+    private volatile Flow.Subscription subscription;
+    private volatile boolean cancelled;
+
+    FxEventBatcher(Consumer<List<HabitEvent>> onFxThread) {
+        this.onFxThread = onFxThread;
+    }
+
+    /** Stop listening (e.g. the scene it feeds was replaced). */
+    void cancel() {
+        cancelled = true;
+        Flow.Subscription s = subscription;
+        if (s != null) s.cancel();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription s) {
+        subscription = s;
+        if (cancelled) {
+            s.cancel();
+            return;
+        }
+        s.request(Long.MAX_VALUE); // we only buffer here, so never hold the publisher up
+    }
+
+    @Override
+    public void onNext(HabitEvent event) {
+        synchronized (this) {
+            pending.add(event);
+            if (drainScheduled) return;
+            drainScheduled = true;
+        }
+        Platform.runLater(this::drain);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        System.err.println("Gui: habit event stream failed: " + t);
+    }
+
+    @Override
+    public void onComplete() {}
+
+    private void drain() {
+        List<HabitEvent> burst;
+        synchronized (this) {
+            burst = pending;
+            pending = new ArrayList<>();
+            drainScheduled = false;
+        }
+        if (!cancelled && !burst.isEmpty()) onFxThread.accept(burst);
+    }
+}
@@ -2,8 +2,9 @@ package com.ramika.habit.gui;
 
 import com.ramika.habit.model.Category;
 import com.ramika.habit.model.Habit;
-import com.ramika.habit.model.Priority;
+import com.ramika.habit.service.HabitEvent;
 import com.ramika.habit.service.HabitService;
+import com.ramika.habit.service.HabitService.OrderKey;
 import com.ramika.habit.service.MidnightScheduler;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
@@ -20,11 +21,15 @@ import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 // === NEW IMPORTS FOR ANIMATION ===
 import javafx.animation.FadeTransition;
@@ -36,8 +41,19 @@ import javafx.util.Duration;
 public class Gui {
 
     private ProgressCard prog;
-    private WeeklyRecapCard recap;
+    private RecapCard recap;
+    private HeatmapCard heatmap;
+    private TrendCard trend;
     private CompletionSummaryCard summary;
+    private DashboardView dv;
+
+    private final HabitService service = HabitService.getInstance();
+
+    // cards currently shown, by habit id
+    private final Map<UUID, HabitCard> cards = new HashMap<>();
+
+    // HabitService change events feeding the scene currently shown (replaced with the scene)
+    private static FxEventBatcher liveEvents;
 
     // filter state (applies ONLY to active-today habits)
     private enum ActiveFilter { ALL, COMPLETED, REMAINING }
@@ -50,7 +66,7 @@ public class Gui {
 
     /** Build and return the main scene */
     public Scene createMainScene(Stage stage) {
-        DashboardView dv = new DashboardView(stage);
+        dv = new DashboardView(stage);
         Parent root = dv.create();
 
         // Scroll container
@@ -61,18 +77,30 @@ public class Gui {
         scroller.setPannable(true);
         scroller.setStyle("-fx-background-color: transparent; -fx-padding: 0;");
 
-        // Top row: donut + weekly recap
+        // Top row: donut + recap
         HBox progressBox = new HBox(20);
         progressBox.setPadding(new Insets(0, 0, 20, 0));
         progressBox.setAlignment(Pos.CENTER);
 
         prog  = new ProgressCard();
-        recap = new WeeklyRecapCard();
-        recap.updateToday(new ArrayList<>(HabitService.getAllHabits().values()));
+        recap = new RecapCard();
+        recap.updateToday();
 
         progressBox.getChildren().addAll(prog, recap);
         dv.contentBox().getChildren().add(progressBox);
 
+        // year heatmap under the top row
+        heatmap = new HeatmapCard();
+        heatmap.updateToday();
+        VBox.setMargin(heatmap, new Insets(0, 0, 20, 0));
+        dv.contentBox().getChildren().add(heatmap);
+
+        // daily completion % over all history
+        trend = new TrendCard();
+        trend.reload();
+        VBox.setMargin(trend, new Insets(0, 0, 20, 0));
+        dv.contentBox().getChildren().add(trend);
+
         // tiny filter bar (affects only active-today)
         HBox filterBar = buildFilterBar(dv);
         VBox.setMargin(filterBar, new Insets(0, 0, 12, 0));
@@ -83,39 +111,42 @@ public class Gui {
         summary.animateToCounts(0, 1);
 
         // listeners → keep donut/summary/recap in sync
-        HabitService.percentDisplayedProperty().addListener((o, oldV, p) ->
+        service.percentDisplayedProperty().addListener((o, oldV, p) ->
                 prog.animateTo(p == null ? 0.0 : p.doubleValue())
         );
 
-        HabitService.completedDisplayedProperty().addListener((obs, oldV, newV) -> {
+        service.completedDisplayedProperty().addListener((obs, oldV, newV) -> {
             if (summary != null) {
-                summary.animateToCounts(newV.intValue(), HabitService.totalDisplayedProperty().get());
+                summary.animateToCounts(newV.intValue(), service.totalDisplayedProperty().get());
             }
-            updateFilterCounts();
-            recap.updateToday(new ArrayList<>(HabitService.getAllHabits().values()));
         });
 
-        HabitService.totalDisplayedProperty().addListener((obs, oldV, newV) -> {
+        service.totalDisplayedProperty().addListener((obs, oldV, newV) -> {
             if (summary != null) {
-                summary.animateToCounts(HabitService.completedDisplayedProperty().get(), newV.intValue());
+                summary.animateToCounts(service.completedDisplayedProperty().get(), newV.intValue());
             }
-            refreshHabitCards(dv); // will animate cards on any total-change
-            updateFilterCounts();
-            recap.updateToday(new ArrayList<>(HabitService.getAllHabits().values()));
         });
 
+        // cards, pills and recap follow the change events, one update per burst
+        if (liveEvents != null) liveEvents.cancel();
+        liveEvents = new FxEventBatcher(this::applyEvents);
+        service.events().subscribe(liveEvents);
+
         // build habit cards (initial render animates)
         refreshHabitCards(dv);
         updateFilterCounts();
 
-        // refresh at local midnight
-        MidnightScheduler.start(() -> Platform.runLater(() -> {
-            HabitService.forceRecompute();
-            recap.updateToday(new ArrayList<>(HabitService.getAllHabits().values()));
-            refreshHabitCards(dv); // animate after midnight rebuild
-            updateFilterCounts();
-            summaryUpdateSnapshot();
-        }));
+        // refresh at local midnight: the full recompute runs on the scheduler's thread, and its
+        // HabitsReloaded event rebuilds cards + recap on the FX thread
+        MidnightScheduler.start(() -> {
+            try {
+                service.forceRecompute();
+            } catch (RuntimeException e) {
+                System.err.println("Gui: midnight refresh failed: " + e); // keep tomorrow's run scheduled
+                return;
+            }
+            Platform.runLater(this::summaryUpdateSnapshot); // after the metrics it just published
+        });
 
         Scene scene = new Scene(scroller, 1200, 720);
         scene.getStylesheets().add(getClass().getResource("/styles.css").toExternalForm());
@@ -174,64 +205,173 @@ public class Gui {
         return r;
     }
 
-    /**
-     * Refresh all habit cards and keep summary at the bottom.
-     * Active-today habits appear first, inactive habits after.
-     * Inside each group, order by Priority: HIGH → MEDIUM → LOW, then by name.
-     * The filter applies ONLY to the active-today list.
-     */
-    private void refreshHabitCards(DashboardView dv) {
-        dv.contentBox().getChildren().removeIf(node ->
-                node instanceof HabitCard || node instanceof CompletionSummaryCard);
+    /** Apply one burst of service events: touch only the cards that changed. */
+    private void applyEvents(List<HabitEvent> burst) {
+        Map<UUID, Habit> changed   = new LinkedHashMap<>(); // re-place these cards
+        Map<UUID, Habit> completed = new LinkedHashMap<>(); // today's checkbox only
+        Set<UUID> removed = new HashSet<>();
+        List<HabitEvent.CompletionChanged> completions = new ArrayList<>(); // heatmap cells
+        boolean reshaped = false; // habits added/removed/rescheduled: every heatmap/trend day may move
+        LocalDate today = LocalDate.now();
+
+        for (HabitEvent e : burst) {
+            switch (e) {
+                case HabitEvent.HabitsReloaded r -> {
+                    refreshHabitCards(dv);
+                    recap.updateToday();
+                    heatmap.updateToday();
+                    trend.reload();
+                    return;
+                }
+                case HabitEvent.HabitRemoved r -> {
+                    removed.add(r.id());
+                    changed.remove(r.id());
+                    completed.remove(r.id());
+                    reshaped = true;
+                }
+                case HabitEvent.HabitCreated c -> {
+                    changed.put(c.habit().getId(), c.habit());
+                    reshaped = true;
+                }
+                case HabitEvent.HabitUpdated u -> {
+                    changed.put(u.habit().getId(), u.habit());
+                    reshaped = true;
+                }
+                case HabitEvent.ScheduleChanged s -> {
+                    changed.put(s.habit().getId(), s.habit());
+                    reshaped = true;
+                }
+                case HabitEvent.CompletionChanged c -> {
+                    if (c.date().equals(today)) completed.put(c.habit().getId(), c.habit());
+                    completions.add(c);
+                }
+            }
+        }
 
-        List<Habit> activeToday = new ArrayList<>();
-        List<Habit> inactive = new ArrayList<>();
+        for (UUID id : removed) removeCard(id);
 
-        DayOfWeek today = LocalDate.now().getDayOfWeek();
-        for (Habit h : HabitService.getAllHabits().values()) {
-            if (h.getSchedule() != null && h.getSchedule().contains(today)) {
-                activeToday.add(h);
+        List<Node> added = new ArrayList<>();
+        for (Habit h : changed.values()) {
+            HabitCard card = placeCard(h);
+            if (card != null) added.add(card);
+        }
+        for (Habit h : completed.values()) {
+            if (changed.containsKey(h.getId())) continue;
+            HabitCard card = cards.get(h.getId());
+            if (activeFilter == ActiveFilter.ALL && card != null) {
+                card.setCompletedToday(isCompletedToday(h));
             } else {
-                inactive.add(h);
+                // the filter decides whether it shows at all
+                HabitCard placed = placeCard(h);
+                if (placed != null && card == null) added.add(placed);
             }
         }
 
-        // apply filter to activeToday only
-        List<Habit> filteredActive = new ArrayList<>();
-        for (Habit h : activeToday) {
-            boolean done = isCompletedToday(h);
-            switch (activeFilter) {
-                case ALL       -> filteredActive.add(h);
-                case COMPLETED -> { if (done) filteredActive.add(h); }
-                case REMAINING -> { if (!done) filteredActive.add(h); }
+        // per-habit heatmaps: re-placed cards were drawn fresh, the rest repaint one cell
+        for (HabitEvent.CompletionChanged c : completions) {
+            HabitCard card = cards.get(c.habit().getId());
+            if (card != null && !changed.containsKey(c.habit().getId())) card.completionChanged(c.date());
+        }
+
+        animateSlideUp(added);
+        updateFilterCounts();
+        recap.updateToday();
+        if (reshaped) {
+            heatmap.updateToday();
+            trend.reload();
+        } else if (!completions.isEmpty()) {
+            List<LocalDate> days = completions.stream().map(HabitEvent.CompletionChanged::date).distinct().toList();
+            heatmap.completionsChanged(days);
+            trend.completionsChanged(days);
+        }
+    }
+
+    /** Put a fresh card for h in its sorted place (or just drop it if the filter hides it). */
+    private HabitCard placeCard(Habit h) {
+        removeCard(h.getId());
+        if (!isShown(h)) return null;
+
+        // card order: active-today first, then the service's order key (priority, name, id)
+        OrderKey key = service.orderKeyOf(h.getId());
+        boolean today = isScheduledToday(h);
+        HabitCard card = newCard(h);
+        List<Node> children = dv.contentBox().getChildren();
+        int at = summary != null && children.contains(summary) ? children.indexOf(summary) : children.size();
+        for (int i = 0; i < children.size(); i++) {
+            if (children.get(i) instanceof HabitCard other) {
+                Habit o = service.getAllHabits().get(other.getHabitId());
+                OrderKey otherKey = service.orderKeyOf(other.getHabitId());
+                if (o == null || otherKey == null) continue;
+                boolean otherToday = isScheduledToday(o);
+                if (today != otherToday ? today : key.compareTo(otherKey) < 0) {
+                    at = i;
+                    break;
+                }
             }
         }
+        children.add(at, card);
+        cards.put(h.getId(), card);
+        return card;
+    }
 
-        // Comparator: by priority (high→low), then by name
-        Comparator<Habit> byPriorityThenName = Comparator
-                .comparingInt((Habit h) -> priorityRank(h.getPriority()))
-                .thenComparing(h -> safeLower(h.getName()));
+    private void removeCard(UUID id) {
+        HabitCard card = cards.remove(id);
+        if (card != null) dv.contentBox().getChildren().remove(card);
+    }
 
-        filteredActive.sort(byPriorityThenName);
-        inactive.sort(byPriorityThenName);
+    // would refreshHabitCards show this habit under the current filter?
+    private boolean isShown(Habit h) {
+        if (!service.getAllHabits().containsKey(h.getId())) return false;
+        if (!isScheduledToday(h)) return activeFilter == ActiveFilter.ALL;
+        boolean done = isCompletedToday(h);
+        return switch (activeFilter) {
+            case ALL       -> true;
+            case COMPLETED -> done;
+            case REMAINING -> !done;
+        };
+    }
+
+    private boolean isScheduledToday(Habit h) {
+        return service.getActiveHabitsOn(LocalDate.now().getDayOfWeek()).containsKey(h.getId());
+    }
+
+    private HabitCard newCard(Habit h) {
+        HabitCard card = new HabitCard(pickIconFor(h), h.getName(), h.getSchedule().toString());
+        card.bindToHabit(h);
+        return card;
+    }
+
+    /**
+     * Refresh all habit cards and keep summary at the bottom.
+     * Active-today habits appear first, inactive habits after.
+     * Inside each group, order by Priority: HIGH → MEDIUM → LOW, then by name.
+     * The filter applies ONLY to the active-today list.
+     */
+    private void refreshHabitCards(DashboardView dv) {
+        dv.contentBox().getChildren().removeIf(node ->
+                node instanceof HabitCard || node instanceof CompletionSummaryCard);
+        cards.clear();
 
         // collect the *newly added* HabitCard nodes so we animate only them
         List<Node> cardsToAnimate = new ArrayList<>();
 
-        // render active first
-        for (Habit h : filteredActive) {
-            HabitCard card = new HabitCard(pickIconFor(h), h.getName(), h.getSchedule().toString());
-            card.bindToHabit(h);
+        // render active first; the service keeps both groups sorted, so no sorting here
+        for (Habit h : service.getActiveTodayOrdered()) {
+            // apply filter to activeToday only
+            if (activeFilter == ActiveFilter.COMPLETED && !isCompletedToday(h)) continue;
+            if (activeFilter == ActiveFilter.REMAINING && isCompletedToday(h)) continue;
+            HabitCard card = newCard(h);
             dv.contentBox().getChildren().add(card);
+            cards.put(h.getId(), card);
             cardsToAnimate.add(card);
         }
 
         // render inactive after (only when "All" filter)
         if (activeFilter == ActiveFilter.ALL) {
-            for (Habit h : inactive) {
-                HabitCard card = new HabitCard(pickIconFor(h), h.getName(), h.getSchedule().toString());
-                card.bindToHabit(h);
+            for (Habit h : service.getInactiveTodayOrdered()) {
+                HabitCard card = newCard(h);
                 dv.contentBox().getChildren().add(card);
+                cards.put(h.getId(), card);
                 cardsToAnimate.add(card);
             }
         }
@@ -251,9 +391,9 @@ public class Gui {
 
     /** Ensure summary + donut reflect current service state */
     private void summaryUpdateSnapshot() {
-        int total = HabitService.totalDisplayedProperty().get();
-        int done  = HabitService.completedDisplayedProperty().get();
-        double p  = HabitService.percentDisplayedProperty().get();
+        int total = service.totalDisplayedProperty().get();
+        int done  = service.completedDisplayedProperty().get();
+        double p  = service.percentDisplayedProperty().get();
 
         summary.animateToCounts(done, total);
         prog.animateTo(p);
@@ -261,19 +401,11 @@ public class Gui {
 
     // compute counts for the pills
     private void updateFilterCounts() {
-        DayOfWeek today = LocalDate.now().getDayOfWeek();
-
-        int totalAll = HabitService.getAllHabits().size(); // active + inactive
-        int activeCompleted = 0;
-        int activeRemaining = 0;
+        int totalAll = service.getAllHabits().size(); // active + inactive
 
-        for (Habit h : HabitService.getAllHabits().values()) {
-            boolean isActiveToday = h.getSchedule() != null && h.getSchedule().contains(today);
-            if (!isActiveToday) continue;
-
-            if (isCompletedToday(h)) activeCompleted++;
-            else activeRemaining++;
-        }
+        // active-today counts are exactly the dashboard counters
+        int activeCompleted = service.completedDisplayedProperty().get();
+        int activeRemaining = service.totalDisplayedProperty().get() - activeCompleted;
 
         allCountLbl.setText(String.valueOf(totalAll));
         doneCountLbl.setText(String.valueOf(activeCompleted));
@@ -310,18 +442,6 @@ public class Gui {
         }
     }
 
-    // priority sorting helper (HIGH -> 0, MEDIUM -> 1, LOW -> 2)
-    private int priorityRank(Priority p) {
-        if (p == null) return 2;
-        return switch (p) {
-            case HIGH -> 0;
-            case MEDIUM -> 1;
-            case LOW -> 2;
-        };
-    }
-
-    private String safeLower(String s) { return s == null ? "" : s.toLowerCase(); }
-
     /** Slide the given nodes up with a small stagger. */
     private void animateSlideUp(List<Node> nodes) {
         final double startY = 22;        // how far they start below
@@ -11,6 +11,7 @@ import javafx.animation.Interpolator;
 import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Cursor;
@@ -24,20 +25,29 @@ import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.util.EnumSet;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
 
 public class HabitCard extends StackPane {
 
+    private final HabitService service = HabitService.getInstance();
+
     private final CheckBox checkBox = new CheckBox();
     private final Label    titleLbl;
     private final Button   deleteBtn;
 
     private final HBox     daysRow = new HBox(6);
 
-    // badges row for category + priority
+    // last year of this habit: done / missed / not scheduled
+    private final Heatmap  heatmap = new Heatmap(8, 2);
+
+    // badges row for category + priority + streak
     private final HBox     badgesRow = new HBox(8);
     private final Label    categoryChip = new Label();
     private final Label    priorityChip = new Label();
+    private final Label    streakChip = new Label();
+    private final Tooltip  streakTip = new Tooltip();
 
+    private Habit   habit;
     private UUID    habitId;
     private boolean activeToday;
     private boolean updatingFromService = false; // prevent loops
@@ -83,14 +93,16 @@ public class HabitCard extends StackPane {
         // badges
         styleChipBase(categoryChip);
         styleChipBase(priorityChip);
+        styleChipBase(streakChip);
+        streakChip.setTooltip(streakTip);
         badgesRow.setAlignment(Pos.CENTER_LEFT);
-        badgesRow.getChildren().addAll(categoryChip, priorityChip);
+        badgesRow.getChildren().addAll(categoryChip, priorityChip, streakChip);
 
         // spacing: tight title↔badges, more space before days
         VBox headerCol = new VBox(4, titleRow, badgesRow); // 4px gap
         headerCol.setAlignment(Pos.CENTER_LEFT);
 
-        VBox textCol = new VBox(14, headerCol, daysRow);   // 14px gap
+        VBox textCol = new VBox(14, headerCol, daysRow, heatmap);   // 14px gap
         textCol.setAlignment(Pos.CENTER_LEFT);
 
         HBox row = new HBox(12, checkBox, textCol);
@@ -119,8 +131,11 @@ public class HabitCard extends StackPane {
         setupHoverAnimation();
     }
 
+    public UUID getHabitId() { return habitId; }
+
     /** Connect this card to a Habit and wire service calls. */
     public void bindToHabit(Habit habit) {
+        this.habit = habit;
         this.habitId = habit.getId();
 
         // Is this habit scheduled for TODAY?
@@ -133,7 +148,9 @@ public class HabitCard extends StackPane {
 
         // badges & days
         updateBadges(habit);
+        updateStreak(habit);
         updateDayChips(habit.getSchedule());
+        heatmap.load(LocalDate.now(), this::dayValue);
 
         if (!activeToday) {
             getStyleClass().add("habit-card-inactive");
@@ -144,24 +161,33 @@ public class HabitCard extends StackPane {
         } else {
             checkBox.selectedProperty().addListener((obs, oldVal, newVal) -> {
                 if (updatingFromService) return;
-                try {
-                    HabitService.setCompletedToday(habitId, newVal);
-                } catch (HabitNotFoundException ex) {
-                    showInfo("Habit not found.");
-                    revert();
-                } catch (HabitNotActiveTodayException ex) {
-                    showInfo("This habit isn’t scheduled for today.");
-                    revert();
-                } catch (HabitAlreadyCompleteException ex) {
-                    checkBox.setSelected(true);
-                } catch (Exception ex) {
-                    showInfo("Couldn’t update. Please try again.");
-                    revert();
-                }
+                // applied by the habit writer; failures come back here on the FX thread
+                service.submit(() -> {
+                    service.setCompletedToday(habitId, newVal);
+                    return null;
+                }).whenComplete((ok, err) -> {
+                    if (err != null) Platform.runLater(() -> toggleFailed(err));
+                });
             });
         }
     }
 
+    private void toggleFailed(Throwable err) {
+        Throwable ex = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+        if (ex instanceof HabitNotFoundException) {
+            showInfo("Habit not found.");
+            revert();
+        } else if (ex instanceof HabitNotActiveTodayException) {
+            showInfo("This habit isn’t scheduled for today.");
+            revert();
+        } else if (ex instanceof HabitAlreadyCompleteException) {
+            checkBox.setSelected(true);
+        } else {
+            showInfo("Couldn’t update. Please try again.");
+            revert();
+        }
+    }
+
     /** Draw the row of day chips (Sun → Sat). */
     private void updateDayChips(EnumSet<DayOfWeek> schedule) {
         daysRow.getChildren().clear();
@@ -201,6 +227,25 @@ public class HabitCard extends StackPane {
         updatingFromService = true;
         checkBox.setSelected(completed);
         updatingFromService = false;
+        if (habit != null) updateStreak(habit);
+    }
+
+    /** A completion on day was set or cleared: repaint that heatmap cell only. */
+    public void completionChanged(LocalDate day) {
+        if (habit == null) return;
+        if (!LocalDate.now().equals(heatmap.getEndDay())) {
+            heatmap.load(LocalDate.now(), this::dayValue);
+        } else {
+            heatmap.set(day, dayValue(day.toEpochDay()));
+        }
+    }
+
+    // 1 done, 0 missed, NaN when not scheduled that weekday (and not done anyway)
+    private double dayValue(long epochDay) {
+        if (habit.isCompletedOnEpochDay(epochDay)) return 1.0;
+        EnumSet<DayOfWeek> schedule = habit.getSchedule();
+        boolean scheduled = schedule != null && schedule.contains(LocalDate.ofEpochDay(epochDay).getDayOfWeek());
+        return scheduled ? 0.0 : Double.NaN;
     }
 
     private void revert() {
@@ -231,7 +276,7 @@ public class HabitCard extends StackPane {
         alert.showAndWait().ifPresent(btn -> {
             if (btn == yes) {
                 try {
-                    HabitService.removeHabit(habitId);
+                    service.removeHabit(habitId);
                 } catch (HabitNotFoundException e) {
                     showInfo("Habit already removed.");
                 } catch (Exception e) {
@@ -271,6 +316,17 @@ public class HabitCard extends StackPane {
         }
     }
 
+    private void updateStreak(Habit habit) {
+        int current = habit.getCurrentStreak();
+        if (current > 0) {
+            setChip(streakChip, "🔥  " + current + (current == 1 ? " day" : " days"), "#fff1e6", "#c2410c");
+        } else {
+            setChip(streakChip, "🔥  No streak", "#f3f4f6", "#6b7280");
+        }
+        streakTip.setText("Longest streak: " + habit.getLongestStreak()
+                + " (rest days don't break a streak)");
+    }
+
     private void styleChipBase(Label chip) {
         chip.setPadding(new Insets(4, 10, 4, 10));
         chip.setStyle("-fx-background-radius: 14; -fx-font-size: 12px; -fx-font-weight: 600;");
@@ -0,0 +1,110 @@
+package com.ramika.habit.gui;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Tooltip;
+import javafx.scene.paint.Color;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.LongToDoubleFunction;
+
+import static java.time.DayOfWeek.SUNDAY;
+
+/**
+ * GitHub-style year of days: 53 week columns (Sunday on top), the last one holding endDay.
+ * Drawn on one Canvas, so a card full of these costs one node each instead of 371 rectangles.
+ *
+ * Cell values live in a per-day array (0..1, or NaN for "nothing scheduled"); load() fills it
+ * once, set() changes one day and repaints just that cell.
+ */
+public class Heatmap extends Canvas {
+    public static final int WEEKS = 53;
+    private static final int CELLS = WEEKS * 7;
+
+    private static final Color EMPTY = Color.web("#f3f4f6");   // nothing scheduled
+    private static final Color[] LEVELS = {                   // 0, then up to 25/50/75/100%
+            Color.web("#e5e7eb"), Color.web("#bbf7d0"), Color.web("#6ee7b7"),
+            Color.web("#34d399"), Color.web("#059669")
+    };
+    private static final DateTimeFormatter TIP_DATE = DateTimeFormatter.ofPattern("EEE, MMM d yyyy", Locale.getDefault());
+
+    private final double cell;
+    private final double gap;
+    private final double[] intensity = new double[CELLS]; // column-major from firstDay
+    private LocalDate firstDay;                           // Sunday of the first column
+    private LocalDate endDay;                             // last drawn day (today)
+    private final Tooltip tip = new Tooltip();
+
+    public Heatmap(double cell, double gap) {
+        super(WEEKS * (cell + gap) - gap, 7 * (cell + gap) - gap);
+        this.cell = cell;
+        this.gap = gap;
+        Arrays.fill(intensity, Double.NaN);
+
+        Tooltip.install(this, tip);
+        setOnMouseMoved(e -> {
+            int col = (int) (e.getX() / (cell + gap));
+            int row = (int) (e.getY() / (cell + gap));
+            int i = col * 7 + row;
+            if (firstDay == null || col >= WEEKS || row >= 7 || i > indexOf(endDay)) {
+                tip.setText("");
+                return;
+            }
+            double v = intensity[i];
+            String date = firstDay.plusDays(i).format(TIP_DATE);
+            tip.setText(Double.isNaN(v) ? date + ": nothing scheduled" : String.format("%s: %.0f%%", date, v * 100));
+        });
+    }
+
+    /** Refill the whole year ending at endDay; valueOf gets an epoch day. */
+    public void load(LocalDate endDay, LongToDoubleFunction valueOf) {
+        this.endDay = endDay;
+        this.firstDay = endDay.with(TemporalAdjusters.previousOrSame(SUNDAY)).minusWeeks(WEEKS - 1);
+        long first = firstDay.toEpochDay();
+        int last = indexOf(endDay);
+        for (int i = 0; i < CELLS; i++) {
+            intensity[i] = i <= last ? valueOf.applyAsDouble(first + i) : Double.NaN;
+        }
+        redraw();
+    }
+
+    /** One day's value changed; days outside the drawn year are ignored. */
+    public void set(LocalDate day, double value) {
+        if (firstDay == null || day.isBefore(firstDay) || day.isAfter(endDay)) return;
+        int i = indexOf(day);
+        intensity[i] = value;
+        paint(getGraphicsContext2D(), i);
+    }
+
+    public LocalDate getEndDay() { return endDay; }
+
+    private int indexOf(LocalDate day) {
+        return (int) ChronoUnit.DAYS.between(firstDay, day);
+    }
+
+    private void redraw() {
+        GraphicsContext g = getGraphicsContext2D();
+        g.clearRect(0, 0, getWidth(), getHeight());
+        int last = indexOf(endDay);
+        for (int i = 0; i <= last; i++) paint(g, i);
+    }
+
+    private void paint(GraphicsContext g, int i) {
+        double x = (i / 7) * (cell + gap);
+        double y = (i % 7) * (cell + gap);
+        g.clearRect(x, y, cell, cell);
+        g.setFill(colorOf(intensity[i]));
+        g.fillRoundRect(x, y, cell, cell, cell / 3, cell / 3);
+    }
+
+    private static Color colorOf(double v) {
+        if (Double.isNaN(v)) return EMPTY;
+        if (v <= 0) return LEVELS[0];
+        return LEVELS[Math.min(4, 1 + (int) (Math.min(v, 1) * 4 - 1e-9))];
+    }
+}
@@ -0,0 +1,79 @@
+package com.ramika.habit.gui;
+
+import com.ramika.habit.service.HabitService;
+import com.ramika.habit.service.SummaryService;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.effect.DropShadow;
+import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
+
+import java.time.LocalDate;
+
+/** Completion rate of all active habits for every day of the last year, one Heatmap cell each. */
+public class HeatmapCard extends VBox {
+    private static final double CELL = 11; // cell size in px
+    private static final double GAP = 3;   // spacing between cells
+
+    private final HabitService service = HabitService.getInstance();
+
+    private final Heatmap heatmap = new Heatmap(CELL, GAP);
+    private final Label rateLabel = new Label("Completion rate (%)");
+
+    public HeatmapCard() {
+        setSpacing(16);
+        setPadding(new Insets(22));
+        setAlignment(Pos.TOP_LEFT);
+        setBackground(new Background(new BackgroundFill(Color.WHITE, new CornerRadii(20), Insets.EMPTY)));
+        setEffect(new DropShadow(20, Color.rgb(15, 23, 42, 0.10)));
+        setMaxWidth(850);
+
+        // Title
+        Label title = new Label("Year in Habits");
+        title.setStyle("-fx-font-size: 20px; -fx-font-weight: 700; -fx-text-fill: #0f172a;");
+        getChildren().addAll(title, heatmap);
+
+        // Footer
+        HBox footer = new HBox();
+        footer.setAlignment(Pos.CENTER_LEFT);
+        footer.setSpacing(12);
+        rateLabel.setStyle("-fx-text-fill:#64748b; -fx-font-size: 13px;");
+        Region spacer = new Region(); HBox.setHgrow(spacer, Priority.ALWAYS);
+        Label right = new Label("Last 365 days");
+        right.setStyle("-fx-text-fill:#64748b; -fx-font-size: 13px;");
+        footer.getChildren().addAll(rateLabel, spacer, right);
+
+        getChildren().add(footer);
+    }
+
+    /** Recompute every day of the year ending today (load, reload, schedule changes, midnight). */
+    public void updateToday() {
+        LocalDate today = LocalDate.now();
+        SummaryService summary = service.getSummary();
+        heatmap.load(today, day -> rateOn(summary, LocalDate.ofEpochDay(day)));
+        updateRate();
+    }
+
+    /** Only completions on these days changed: repaint their cells, leave the rest of the year alone. */
+    public void completionsChanged(Iterable<LocalDate> days) {
+        if (!LocalDate.now().equals(heatmap.getEndDay())) {
+            updateToday();
+            return;
+        }
+        SummaryService summary = service.getSummary();
+        for (LocalDate day : days) heatmap.set(day, rateOn(summary, day));
+        updateRate();
+    }
+
+    // NaN when nothing was scheduled, so rest days look different from missed ones
+    private static double rateOn(SummaryService summary, LocalDate day) {
+        return summary.scheduledCount(day, day) == 0 ? Double.NaN : summary.completionRate(day, day);
+    }
+
+    private void updateRate() {
+        LocalDate today = heatmap.getEndDay();
+        double year = service.getSummary().completionRate(today.minusDays(364), today);
+        rateLabel.setText(String.format("Completion rate: %.0f%%", year * 100));
+    }
+}
@@ -0,0 +1,164 @@
+package com.ramika.habit.gui;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling of a daily series (x = day index, NaN = no value),
+ * for any visible range, at no more than about `points` points however long the series is.
+ *
+ * Buckets are anchored to the series rather than the view: the width is the power of two that
+ * keeps the view under budget, and bucket b always covers days [b*w, (b+1)*w). A bucket's pick
+ * depends only on its days, the next bucket's average and the previous pick, so picks are
+ * cached per width and a pan or a zoom within the same width only works out the buckets at the
+ * edges and the ones whose previous pick moved. set() forgets the two buckets a day can affect.
+ * Not thread-safe (FX thread).
+ */
+final class Lttb {
+    private static final int UNKNOWN = -2; // pick not worked out yet
+    private static final int EMPTY = -1;   // bucket has no values
+
+    private final double[] y;
+    private final int points;
+    private final double[] sumX;  // prefix sums over non-NaN days: sumX[i] covers [0, i)
+    private final double[] sumY;
+    private final int[] count;
+    private final Map<Integer, Level> levels = new HashMap<>();
+
+    // cached picks for one bucket width
+    private static final class Level {
+        final int[] pick;
+        final int[] prev;     // previous pick each cached pick was made against
+        final double[] prevY; // and its value then
+        Level(int buckets) {
+            pick = new int[buckets];
+            prev = new int[buckets];
+            prevY = new double[buckets];
+            Arrays.fill(pick, UNKNOWN);
+        }
+    }
+
+    Lttb(double[] y, int points) {
+        if (points < 8) throw new IllegalArgumentException("points must be at least 8");
+        this.y = y;
+        this.points = points;
+        sumX = new double[y.length + 1];
+        sumY = new double[y.length + 1];
+        count = new int[y.length + 1];
+        prefixFrom(0);
+    }
+
+    int length() { return y.length; }
+
+    double get(int i) { return y[i]; }
+
+    /** Change one day's value (NaN clears it). */
+    void set(int i, double value) {
+        if (Double.compare(y[i], value) == 0) return;
+        y[i] = value;
+        prefixFrom(i);
+        for (Map.Entry<Integer, Level> e : levels.entrySet()) {
+            int b = i / e.getKey();
+            Level level = e.getValue();
+            level.pick[b] = UNKNOWN;
+            if (b > 0) level.pick[b - 1] = UNKNOWN; // its "next bucket" average moved
+        }
+    }
+
+    /** Indices of the points to draw for days [from, to], in order. */
+    int[] downsample(int from, int to) {
+        from = Math.max(0, from);
+        to = Math.min(y.length - 1, to);
+        if (to < from) return new int[0];
+        int valid = count[to + 1] - count[from];
+        int[] out = new int[Math.min(valid, points)];
+        int n = 0;
+        if (valid <= points) {
+            for (int i = from; i <= to; i++) if (!Double.isNaN(y[i])) out[n++] = i;
+            return out;
+        }
+
+        int a = from;
+        while (Double.isNaN(y[a])) a++;
+        int z = to;
+        while (Double.isNaN(y[z])) z--;
+
+        // at most points - 4 whole buckets across the view, plus one partial at each end
+        int w = Integer.highestOneBit(Math.max(1, (z - a) / (points - 4)));
+        if ((long) w * (points - 4) < z - a) w <<= 1;
+        Level level = levels.computeIfAbsent(w, k -> new Level((y.length + k - 1) / k));
+
+        out[n++] = a;
+        int prev = a;
+        int firstBucket = (a + 1) / w;
+        int lastBucket = (z - 1) / w;
+        for (int b = firstBucket; b <= lastBucket && a + 1 <= z - 1; b++) {
+            int lo = Math.max(b * w, a + 1);
+            int hi = Math.min((b + 1) * w - 1, z - 1);
+            // the cache holds picks made on whole buckets with a whole next bucket
+            boolean whole = lo == b * w && hi == (b + 1) * w - 1
+                    && b < lastBucket && (b + 2) * w - 1 <= z - 1;
+
+            int pick;
+            if (whole && level.pick[b] != UNKNOWN && level.prev[b] == prev
+                    && Double.compare(level.prevY[b], y[prev]) == 0) {
+                pick = level.pick[b];
+            } else {
+                double nx, ny;
+                if (b == lastBucket) {
+                    nx = z;
+                    ny = y[z];
+                } else {
+                    int nlo = (b + 1) * w;
+                    int nhi = Math.min((b + 2) * w - 1, z - 1);
+                    int c = count[nhi + 1] - count[nlo];
+                    nx = c == 0 ? (nlo + nhi) / 2.0 : (sumX[nhi + 1] - sumX[nlo]) / c;
+                    ny = c == 0 ? y[prev] : (sumY[nhi + 1] - sumY[nlo]) / c;
+                }
+                pick = pick(prev, lo, hi, nx, ny);
+                if (whole) {
+                    level.pick[b] = pick;
+                    level.prev[b] = prev;
+                    level.prevY[b] = y[prev];
+                }
+            }
+            if (pick != EMPTY) {
+                if (n == out.length) out = Arrays.copyOf(out, n * 2);
+                out[n++] = pick;
+                prev = pick;
+            }
+        }
+        if (z != a) {
+            if (n == out.length) out = Arrays.copyOf(out, n + 1);
+            out[n++] = z;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // the day in [lo, hi] making the largest triangle with prev and (nx, ny)
+    private int pick(int prev, int lo, int hi, double nx, double ny) {
+        double px = prev;
+        double py = y[prev];
+        int best = EMPTY;
+        double bestArea = -1;
+        for (int j = lo; j <= hi; j++) {
+            if (Double.isNaN(y[j])) continue;
+            double area = Math.abs((px - nx) * (y[j] - py) - (px - j) * (ny - py));
+            if (area > bestArea) {
+                bestArea = area;
+                best = j;
+            }
+        }
+        return best;
+    }
+
+    private void prefixFrom(int i) {
+        for (int k = i; k < y.length; k++) {
+            boolean has = !Double.isNaN(y[k]);
+            sumX[k + 1] = sumX[k] + (has ? k : 0);
+            sumY[k + 1] = sumY[k] + (has ? y[k] : 0);
+            count[k + 1] = count[k] + (has ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.ramika.habit.gui;
+
+import com.ramika.habit.service.HabitService;
+import com.ramika.habit.service.SummaryService;
+import javafx.animation.Interpolator;
+import javafx.animation.KeyFrame;
+import javafx.animation.KeyValue;
+import javafx.animation.Timeline;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ToggleButton;
+import javafx.scene.control.ToggleGroup;
+import javafx.scene.effect.DropShadow;
+import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.util.Duration;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Completion rate per bar over the last N days (7, 30, 90 or 365 from the header pills).
+ * Up to 31 days get a bar each; longer windows are split into week or 30-day bars ending today.
+ *
+ * The rates are read on a background thread; only the finished numbers come back to the FX
+ * thread, and a newer update cancels the one still pending.
+ */
+public class RecapCard extends VBox {
+    public static final int[] WINDOWS = {7, 30, 90, 365};
+
+    private static final int MAX_BARS = 31;
+    private static final double MAX_BAR_H = 110; // bar height in px
+    private static final double MAX_BAR_W = 56;  // bar width in px (7 bars)
+    private static final double INNER_W = 456;   // pref width minus padding
+    private static final DateTimeFormatter WEEK_LABEL = DateTimeFormatter.ofPattern("MMM d", Locale.getDefault());
+    private static final DateTimeFormatter MONTH_LABEL = DateTimeFormatter.ofPattern("MMM", Locale.getDefault());
+
+    // one daemon thread: tasks cancelled while queued never run
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "recap-worker");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final HabitService service = HabitService.getInstance();
+
+    private final GridPane grid = new GridPane();
+    private final List<Rectangle> fills = new ArrayList<>();
+    private final List<Label> dayLabels = new ArrayList<>();
+    private final Label rateLabel = new Label("Completion rate (%)");
+    private final Label windowLabel = new Label();
+
+    private int window = 7;  // days shown
+    private int chunk = 1;   // days per bar
+    private Task<Recap> pending;
+
+    /** What the worker hands back: one rate per bar (display order) and the whole window's. */
+    private record Recap(double[] bars, double window) {}
+
+    public RecapCard() {
+        setSpacing(16);
+        setPadding(new Insets(22));
+        setAlignment(Pos.TOP_LEFT);
+        setBackground(new Background(new BackgroundFill(Color.WHITE, new CornerRadii(20), Insets.EMPTY)));
+        setEffect(new DropShadow(20, Color.rgb(15, 23, 42, 0.10)));
+        setMaxWidth(760);
+        setPrefWidth(500);
+
+        // Title + window pills
+        Label title = new Label("Recap");
+        title.setStyle("-fx-font-size: 20px; -fx-font-weight: 700; -fx-text-fill: #0f172a;");
+        HBox header = new HBox(6, title);
+        header.setAlignment(Pos.CENTER_LEFT);
+        Region gap = new Region(); HBox.setHgrow(gap, Priority.ALWAYS);
+        header.getChildren().add(gap);
+
+        ToggleGroup tg = new ToggleGroup();
+        for (int days : WINDOWS) {
+            ToggleButton tb = new ToggleButton(days == 365 ? "1y" : days + "d");
+            tb.getStyleClass().add("pill");
+            tb.setFocusTraversable(false);
+            tb.setToggleGroup(tg);
+            tb.setSelected(days == window);
+            tb.setOnAction(e -> {
+                tb.setSelected(true); // a pill stays on when clicked again
+                setWindow(days);
+            });
+            header.getChildren().add(tb);
+        }
+        getChildren().add(header);
+
+        // Bars row
+        grid.setAlignment(Pos.CENTER_LEFT);
+        buildBars();
+        getChildren().add(grid);
+
+        // Footer
+        HBox footer = new HBox();
+        footer.setAlignment(Pos.CENTER_LEFT);
+        footer.setSpacing(12);
+        rateLabel.setStyle("-fx-text-fill:#64748b; -fx-font-size: 13px;");
+        Region spacer = new Region(); HBox.setHgrow(spacer, Priority.ALWAYS);
+        windowLabel.setStyle("-fx-text-fill:#64748b; -fx-font-size: 13px;");
+        footer.getChildren().addAll(rateLabel, spacer, windowLabel);
+
+        getChildren().add(footer);
+    }
+
+    public int getWindow() { return window; }
+
+    /** Show the last `days` days (any positive count) and recompute for today. */
+    public void setWindow(int days) {
+        if (days < 1) throw new IllegalArgumentException("days must be positive");
+        if (days != window) {
+            window = days;
+            buildBars();
+        }
+        updateToday();
+    }
+
+    /** Convenience: compute & animate for the window ending today. */
+    public void updateToday() {
+        update(LocalDate.now());
+    }
+
+    /** Compute (off the FX thread) & animate for the window ending at endDate. */
+    public void update(LocalDate endDate) {
+        setDayLabels(endDate);
+        windowLabel.setText(window == 7 ? "Last 7 days" : "Last " + window + " days");
+
+        int bars = fills.size();
+        long[] from = new long[bars];
+        long[] to = new long[bars];
+        barRanges(endDate, from, to);
+        long end = endDate.toEpochDay();
+        long start = end - window + 1;
+        SummaryService summary = service.getSummary();
+
+        if (pending != null) pending.cancel();
+        Task<Recap> task = new Task<>() {
+            @Override
+            protected Recap call() {
+                double[] out = new double[bars];
+                for (int i = 0; i < bars; i++) {
+                    if (isCancelled()) return null;
+                    out[i] = summary.completionRate(from[i], to[i]); // two prefix reads, no habit scan
+                }
+                return new Recap(out, summary.completionRate(start, end));
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (task != pending) return; // finished just before a newer request cancelled it
+            pending = null;
+            Recap r = task.getValue();
+            animateTo(r.bars());
+            rateLabel.setText(String.format("Completion rate: %.0f%%", r.window() * 100));
+        });
+        task.setOnFailed(e -> {
+            if (task != pending) return;
+            pending = null; // the next update starts afresh; the bars keep their last values
+            System.err.println("RecapCard: recap failed: " + task.getException());
+        });
+        pending = task;
+        WORKER.execute(task);
+    }
+
+    /** Label the bars for the window ending at endDate (weekday names for the 7-day view). */
+    public void setDayLabels(LocalDate endDate) {
+        int bars = fills.size();
+        long[] from = new long[bars];
+        long[] to = new long[bars];
+        barRanges(endDate, from, to);
+        int step = (bars + 7) / 8; // about 8 labels, the newest bar always one of them
+        for (int i = 0; i < bars; i++) {
+            String text = "";
+            if (window == 7 || (bars - 1 - i) % step == 0) {
+                LocalDate first = LocalDate.ofEpochDay(from[i]);
+                if (chunk == 1 && window <= 7) {
+                    text = first.getDayOfWeek().getDisplayName(TextStyle.SHORT, Locale.getDefault());
+                } else if (chunk == 1) {
+                    text = String.valueOf(first.getDayOfMonth());
+                } else if (chunk == 7) {
+                    text = first.format(WEEK_LABEL);
+                } else {
+                    text = LocalDate.ofEpochDay(to[i]).format(MONTH_LABEL);
+                }
+            }
+            dayLabels.get(i).setText(text);
+        }
+    }
+
+    /** Animate the bars to the given percentages (0..1), in display order. */
+    public void animateTo(double[] percentages) {
+        for (int i = 0; i < Math.min(fills.size(), percentages.length); i++) {
+            double pct = clamp(percentages[i], 0, 1);
+            Rectangle fill = fills.get(i);
+
+            double fromH = fill.getHeight();
+            double toH   = pct * MAX_BAR_H;
+
+            Timeline tl = new Timeline(
+                    new KeyFrame(Duration.ZERO, new KeyValue(fill.heightProperty(), fromH)),
+                    new KeyFrame(Duration.millis(600),
+                            new KeyValue(fill.heightProperty(), toH, Interpolator.EASE_BOTH))
+            );
+            tl.play();
+        }
+    }
+
+    /** (Re)create the bar columns for the current window. */
+    private void buildBars() {
+        chunk = window <= MAX_BARS ? 1 : window <= 7 * MAX_BARS ? 7 : window <= 30 * MAX_BARS ? 30 : (window + MAX_BARS - 1) / MAX_BARS;
+        int bars = (window + chunk - 1) / chunk;
+        double gutter = bars <= 7 ? 18 : 4;
+        double barW = Math.min(MAX_BAR_W, (INNER_W - gutter * (bars - 1)) / bars);
+        double arc = Math.min(12, barW);
+
+        grid.getChildren().clear();
+        grid.getColumnConstraints().clear();
+        grid.setHgap(gutter);
+        fills.clear();
+        dayLabels.clear();
+
+        for (int i = 0; i < bars; i++) {
+            ColumnConstraints cc = new ColumnConstraints();
+            cc.setPercentWidth(100.0 / bars);
+            cc.setHalignment(javafx.geometry.HPos.CENTER);
+            grid.getColumnConstraints().add(cc);
+        }
+
+        for (int i = 0; i < bars; i++) {
+            VBox one = new VBox(8);
+            one.setAlignment(Pos.BOTTOM_CENTER);
+
+            StackPane slot = new StackPane();
+            slot.setPrefHeight(MAX_BAR_H);
+            slot.setMinHeight(MAX_BAR_H);
+            slot.setMaxHeight(MAX_BAR_H);
+
+            Rectangle track = new Rectangle(barW, MAX_BAR_H, Color.web("#e5e7eb"));
+            track.setArcWidth(arc); track.setArcHeight(arc);
+
+            Rectangle fill = new Rectangle(barW, 0, Color.web("#34d399"));
+            fill.setArcWidth(arc); fill.setArcHeight(arc);
+            StackPane.setAlignment(fill, Pos.BOTTOM_CENTER);
+
+            slot.getChildren().addAll(track, fill);
+            fills.add(fill);
+
+            Label day = new Label("—");
+            day.setStyle("-fx-text-fill:#475569; -fx-font-size:" + (bars <= 7 ? 13 : 11) + "px;");
+            day.setMinWidth(Region.USE_PREF_SIZE); // a label may overhang its thin bar
+            dayLabels.add(day);
+
+            one.getChildren().addAll(slot, day);
+            grid.add(one, i, 0);
+        }
+    }
+
+    /**
+     * Epoch-day range of each bar in display order: chunk-day bars ending at endDate (the
+     * oldest one cut to the window), or Sunday-first single days for the 7-day view.
+     */
+    private void barRanges(LocalDate endDate, long[] from, long[] to) {
+        int bars = from.length;
+        long end = endDate.toEpochDay();
+        long start = end - window + 1;
+        int shift = 0;
+        if (window == 7) {
+            // rotate so Sunday is bar 0 (Sun..Sat)
+            int sunday = (int) Math.floorMod(DayOfWeek.SUNDAY.getValue() - LocalDate.ofEpochDay(start).getDayOfWeek().getValue(), 7L);
+            shift = sunday;
+        }
+        for (int i = 0; i < bars; i++) {
+            int k = (i + shift) % bars; // chronological bar index
+            long last = end - (long) (bars - 1 - k) * chunk;
+            from[i] = Math.max(start, last - chunk + 1);
+            to[i] = last;
+        }
+    }
+
+    private static double clamp(double v, double min, double max) {
+        return Math.max(min, Math.min(max, v));
+    }
+}
@@ -0,0 +1,194 @@
+package com.ramika.habit.gui;
+
+import com.ramika.habit.service.HabitService;
+import com.ramika.habit.service.SummaryService;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Label;
+import javafx.scene.effect.DropShadow;
+import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Line chart of the daily completion rate from the first completion to today. Whatever the
+ * history length, the visible range is cut down to at most POINTS points with LTTB (see Lttb),
+ * and zoom (scroll) / pan (drag) reuse the buckets already worked out. Double-click shows all.
+ */
+public class TrendCard extends VBox {
+    private static final double WIDTH = 739;     // canvas size in px
+    private static final double HEIGHT = 180;
+    private static final double LEFT = 36;       // room for the % labels
+    private static final double TOP = 8;
+    private static final double BOTTOM = 8;
+    private static final int POINTS = 360;       // about one point per 2px of plot
+    private static final int MIN_SPAN = 13;      // zoom in no further than two weeks
+    private static final int MIN_HISTORY = 30;   // days shown before there is more history
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("MMM d, yyyy", Locale.getDefault());
+
+    private final HabitService service = HabitService.getInstance();
+
+    private final Canvas canvas = new Canvas(WIDTH, HEIGHT);
+    private final Label rangeLabel = new Label();
+    private final Label pointsLabel = new Label();
+
+    private Lttb series;         // one value per day from firstDay to endDay, NaN = nothing scheduled
+    private LocalDate firstDay;
+    private LocalDate endDay;
+    private int from;            // visible days, indices into series
+    private int to;
+
+    // drag state
+    private double dragX;
+    private int dragFrom;
+
+    public TrendCard() {
+        setSpacing(16);
+        setPadding(new Insets(22));
+        setAlignment(Pos.TOP_LEFT);
+        setBackground(new Background(new BackgroundFill(Color.WHITE, new CornerRadii(20), Insets.EMPTY)));
+        setEffect(new DropShadow(20, Color.rgb(15, 23, 42, 0.10)));
+        setMaxWidth(850);
+
+        // Title
+        Label title = new Label("Completion Trend");
+        title.setStyle("-fx-font-size: 20px; -fx-font-weight: 700; -fx-text-fill: #0f172a;");
+        getChildren().addAll(title, canvas);
+
+        // Footer
+        HBox footer = new HBox();
+        footer.setAlignment(Pos.CENTER_LEFT);
+        footer.setSpacing(12);
+        rangeLabel.setStyle("-fx-text-fill:#64748b; -fx-font-size: 13px;");
+        Region spacer = new Region(); HBox.setHgrow(spacer, Priority.ALWAYS);
+        pointsLabel.setStyle("-fx-text-fill:#64748b; -fx-font-size: 13px;");
+        footer.getChildren().addAll(rangeLabel, spacer, pointsLabel);
+        getChildren().add(footer);
+
+        // zoom around the cursor
+        canvas.setOnScroll(e -> {
+            if (series == null || e.getDeltaY() == 0) return;
+            int span = to - from;
+            int full = series.length() - 1;
+            int newSpan = (int) Math.round(span * (e.getDeltaY() > 0 ? 0.8 : 1.25));
+            newSpan = Math.max(Math.min(MIN_SPAN, full), Math.min(full, newSpan));
+            if (newSpan == span) return;
+            double at = from + fraction(e.getX()) * span;
+            show((int) Math.round(at - (at - from) * newSpan / span), newSpan);
+        });
+
+        // pan by dragging
+        canvas.setOnMousePressed(e -> {
+            dragX = e.getX();
+            dragFrom = from;
+        });
+        canvas.setOnMouseDragged(e -> {
+            if (series == null) return;
+            int span = to - from;
+            int shift = (int) Math.round((dragX - e.getX()) / (WIDTH - LEFT) * span);
+            show(dragFrom + shift, span);
+        });
+
+        canvas.setOnMouseClicked(e -> {
+            if (series != null && e.getClickCount() == 2) show(0, series.length() - 1);
+        });
+    }
+
+    /** Re-read the whole series (load, reload, schedule changes, midnight); keeps the visible dates if zoomed. */
+    public void reload() {
+        SummaryService summary = service.getSummary();
+        LocalDate today = LocalDate.now();
+        LocalDate first = summary.firstCompletedDay();
+        LocalDate start = first == null || first.isAfter(today.minusDays(MIN_HISTORY - 1))
+                ? today.minusDays(MIN_HISTORY - 1) : first;
+
+        boolean zoomed = series != null && (from > 0 || to < series.length() - 1);
+        LocalDate viewFrom = zoomed ? firstDay.plusDays(from) : null;
+        LocalDate viewTo = zoomed ? firstDay.plusDays(to) : null;
+
+        series = new Lttb(summary.dailyRates(start, today), POINTS);
+        firstDay = start;
+        endDay = today;
+        if (zoomed) {
+            int f = (int) (viewFrom.toEpochDay() - start.toEpochDay());
+            show(f, (int) (viewTo.toEpochDay() - viewFrom.toEpochDay()));
+        } else {
+            show(0, series.length() - 1);
+        }
+    }
+
+    /** Only completions on these days changed: update their values and redraw. */
+    public void completionsChanged(Iterable<LocalDate> days) {
+        if (series == null || !LocalDate.now().equals(endDay)) {
+            reload();
+            return;
+        }
+        SummaryService summary = service.getSummary();
+        for (LocalDate day : days) {
+            if (day.isAfter(endDay)) continue;
+            if (day.isBefore(firstDay)) {
+                reload(); // history now starts earlier
+                return;
+            }
+            series.set((int) (day.toEpochDay() - firstDay.toEpochDay()), summary.dailyRates(day, day)[0]);
+        }
+        draw();
+    }
+
+    // move the view to span days starting at start, kept inside the series
+    private void show(int start, int span) {
+        int last = series.length() - 1;
+        span = Math.min(span, last);
+        from = Math.max(0, Math.min(start, last - span));
+        to = from + span;
+        draw();
+    }
+
+    // x on the canvas as a fraction of the plot width
+    private static double fraction(double x) {
+        return Math.max(0, Math.min(1, (x - LEFT) / (WIDTH - LEFT)));
+    }
+
+    private void draw() {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.clearRect(0, 0, WIDTH, HEIGHT);
+        double plotW = WIDTH - LEFT;
+        double plotH = HEIGHT - TOP - BOTTOM;
+
+        // 0 / 50 / 100% guides
+        g.setFont(Font.font(11));
+        g.setTextAlign(TextAlignment.RIGHT);
+        g.setTextBaseline(VPos.CENTER);
+        g.setLineWidth(1);
+        for (int pct = 0; pct <= 100; pct += 50) {
+            double y = TOP + (1 - pct / 100.0) * plotH;
+            g.setStroke(Color.web("#e5e7eb"));
+            g.strokeLine(LEFT, y, WIDTH, y);
+            g.setFill(Color.web("#64748b"));
+            g.fillText(pct + "%", LEFT - 6, y);
+        }
+
+        int[] idx = series.downsample(from, to);
+        double span = Math.max(1, to - from);
+        g.setStroke(Color.web("#34d399"));
+        g.setLineWidth(2);
+        g.beginPath();
+        for (int k = 0; k < idx.length; k++) {
+            double x = LEFT + (idx[k] - from) / span * plotW;
+            double y = TOP + (1 - series.get(idx[k])) * plotH;
+            if (k == 0) g.moveTo(x, y); else g.lineTo(x, y);
+        }
+        g.stroke();
+
+        rangeLabel.setText(firstDay.plusDays(from).format(DATE) + " – " + firstDay.plusDays(to).format(DATE));
+        pointsLabel.setText((to - from + 1) + " days · " + idx.length + " points");
+    }
+}
@@ -5,19 +5,48 @@ import com.ramika.habit.exceptions.HabitAlreadyCompleteException;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.LongConsumer;
 
 // represents a Habit with a unique id, a name, priority level, category and active status
+//
+// Reads are safe from any thread; writes must be serialized by the caller (HabitService holds
+// a per-habit lock around every mutation).
 public class Habit {
     private final UUID id;
-    private String name;
-    private Priority priority;
-    private Category category;
-    private Status activeStatus;
-    private EnumSet<DayOfWeek> schedule;
-    private List<HabitCompletion> completions = new ArrayList<>();
+    private volatile String name;
+    private volatile Priority priority;
+    private volatile Category category;
+    private volatile Status activeStatus;
+    private volatile EnumSet<DayOfWeek> schedule;
+
+    // Completion history as an epoch-day bitmap: bit (day & 63) of words[(day >> 6) - base].
+    // base is anchored at the habit's first completed day and grows in either direction; growth
+    // swaps in a new Bitmap so a reader never pairs an old base with a new array.
+    private volatile Bitmap bitmap = Bitmap.EMPTY;
+    private volatile int completedCount;
+    private volatile List<HabitCompletion> completionsView; // materialized lazily, dropped on change
+
+    // Streaks under the current schedule: built from the bitmap on first use, then kept up to
+    // date one day at a time by setBit; dropped when the schedule changes.
+    private final Object streakLock = new Object();
+    private StreakTracker streaks; // guarded by streakLock
+
+    private static final class Bitmap {
+        static final Bitmap EMPTY = new Bitmap(0, new long[0]);
+
+        final long base;
+        final long[] words;
+
+        Bitmap(long base, long[] words) {
+            this.base = base;
+            this.words = words;
+        }
+    }
 
     // Creates a new habit with given name, priority, category, and activeStatus set to Active
     public Habit(UUID id, String name, Priority priority, Category category, EnumSet<DayOfWeek> schedule) {
@@ -32,7 +61,12 @@ public class Habit {
     public UUID getId() { return id; }
 
     public EnumSet<DayOfWeek> getSchedule() { return schedule; }
-    public void setSchedule(EnumSet<DayOfWeek> schedule) { this.schedule = schedule; }
+    public void setSchedule(EnumSet<DayOfWeek> schedule) {
+        synchronized (streakLock) {
+            this.schedule = schedule;
+            streaks = null;
+        }
+    }
 
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
@@ -46,41 +80,142 @@ public class Habit {
     public Status getActiveStatus() { return activeStatus; }
     public void setActiveStatus(Status activeStatus) { this.activeStatus = activeStatus; }
 
-    public List<HabitCompletion> getCompletions() { return completions; }
+    /** Read-only, date-ordered view of the completion history (rebuilt only after a change). */
+    public List<HabitCompletion> getCompletions() {
+        List<HabitCompletion> view = completionsView;
+        if (view == null) {
+            List<HabitCompletion> out = new ArrayList<>(completedCount);
+            forEachCompletedDay(day -> out.add(new HabitCompletion(LocalDate.ofEpochDay(day), true)));
+            view = Collections.unmodifiableList(out);
+            completionsView = view;
+        }
+        return view;
+    }
+
+    public int getCompletedCount() { return completedCount; }
 
     public void markCompletedToday() throws HabitAlreadyCompleteException {
         LocalDate today = LocalDate.now();
-        if (findCompletionByDate(today) == null) {
-            HabitCompletion completion = new HabitCompletion(today, true);
-            completions.add(completion);
+        if (!isCompletedOn(today)) {
+            setBit(today.toEpochDay(), true);
         } else {
             throw new HabitAlreadyCompleteException();
         }
     }
 
     public void updateCompletion(int index, HabitCompletion updatedCompletion) {
-        if (index >= 0 && index < completions.size()) {
-            completions.set(index, updatedCompletion);
+        List<HabitCompletion> current = getCompletions();
+        if (index >= 0 && index < current.size()) {
+            setBit(current.get(index).getDate().toEpochDay(), false);
+            if (updatedCompletion != null && updatedCompletion.isCompleted()) {
+                setBit(updatedCompletion.getDate().toEpochDay(), true);
+            }
         }
     }
 
     public void removeCompletion(int index) {
-        if (index >= 0 && index < completions.size()) {
-            completions.remove(index);
+        List<HabitCompletion> current = getCompletions();
+        if (index >= 0 && index < current.size()) {
+            setBit(current.get(index).getDate().toEpochDay(), false);
         }
     }
 
     public HabitCompletion findCompletionByDate(LocalDate date) {
-        for (HabitCompletion hc : completions) {
-            if (hc.getDate().equals(date)) return hc;
-        }
-        return null;
+        return isCompletedOn(date) ? new HabitCompletion(date, true) : null;
     }
 
     // -------- helpers for today-aware logic --------
     public boolean isCompletedOn(LocalDate date) {
-        HabitCompletion hc = findCompletionByDate(date);
-        return hc != null && hc.isCompleted();
+        return date != null && isCompletedOnEpochDay(date.toEpochDay());
+    }
+
+    public boolean isCompletedOnEpochDay(long epochDay) {
+        Bitmap b = bitmap;
+        long w = (epochDay >> 6) - b.base;
+        if (w < 0 || w >= b.words.length) return false;
+        return (b.words[(int) w] & (1L << epochDay)) != 0;
+    }
+
+    /** Epoch-day form of setCompletedOn, for bulk loaders. */
+    public void setCompletedOnEpochDay(long epochDay, boolean completed) {
+        setBit(epochDay, completed);
+    }
+
+    /**
+     * Bulk form of setCompletedOnEpochDay(day, true) for loaders: sizes the bitmap once for the
+     * whole range, so pre-sorted (or any) history loads without repeated growth.
+     */
+    public void setCompletedDays(long[] epochDays, int count) {
+        if (count <= 0) return;
+        long min = epochDays[0];
+        long max = epochDays[0];
+        for (int i = 1; i < count; i++) {
+            min = Math.min(min, epochDays[i]);
+            max = Math.max(max, epochDays[i]);
+        }
+        ensureWord(max >> 6);
+        ensureWord(min >> 6);
+        for (int i = 0; i < count; i++) setBit(epochDays[i], true);
+    }
+
+    /** Visit every completed day in ascending order, as epoch days. */
+    public void forEachCompletedDay(LongConsumer action) {
+        Bitmap b = bitmap;
+        for (int w = 0; w < b.words.length; w++) {
+            long bits = b.words[w];
+            while (bits != 0) {
+                action.accept(((b.base + w) << 6) + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    /** Detached copy of the fields and completion history (for snapshot writers). */
+    public Habit copy() {
+        EnumSet<DayOfWeek> s = schedule;
+        Habit c = new Habit(id, name, priority, category, s == null ? null : EnumSet.copyOf(s));
+        c.activeStatus = activeStatus;
+        Bitmap b = bitmap;
+        c.bitmap = new Bitmap(b.base, b.words.clone());
+        c.completedCount = completedCount;
+        return c;
+    }
+
+    /** Rough heap footprint (object, name, schedule, bitmap), for memory budgets. */
+    public long estimatedBytes() {
+        String n = name;
+        return 160 + (n == null ? 0 : 48 + 2L * n.length()) + 8L * bitmap.words.length;
+    }
+
+    /**
+     * Completed scheduled days in a row, up to today (rest days don't break a streak; today
+     * counts once it's completed, but doesn't break the streak while still open).
+     */
+    public int getCurrentStreak() {
+        return getCurrentStreak(LocalDate.now());
+    }
+
+    public int getCurrentStreak(LocalDate asOf) {
+        synchronized (streakLock) {
+            return (int) streaks().current(asOf.toEpochDay());
+        }
+    }
+
+    /** Longest run of completed scheduled days in the whole history. */
+    public int getLongestStreak() {
+        synchronized (streakLock) {
+            return (int) streaks().longest();
+        }
+    }
+
+    // caller holds streakLock
+    private StreakTracker streaks() {
+        if (streaks == null) {
+            StreakTracker t = new StreakTracker(schedule);
+            forEachCompletedDay(t::add);
+            streaks = t;
+        }
+        return streaks;
     }
 
     public boolean isCompletedToday() {
@@ -88,7 +223,7 @@ public class Habit {
     }
 
     public void unmarkCompletedOn(LocalDate date) {
-        completions.removeIf(hc -> hc.getDate().equals(date));
+        setBit(date.toEpochDay(), false);
     }
 
     public void unmarkCompletedToday() {
@@ -97,12 +232,62 @@ public class Habit {
 
     /** Set completion for a given date (adds or removes entry). */
     public void setCompletedOn(LocalDate date, boolean completed) throws HabitAlreadyCompleteException {
-        if (completed) {
-            if (findCompletionByDate(date) == null) {
-                completions.add(new HabitCompletion(date, true));
-            } // else already completed; ignore to keep UX simple
+        // setting an already-completed day is ignored to keep UX simple
+        setBit(date.toEpochDay(), completed);
+    }
+
+    // -------- bitmap internals --------
+
+    /** Flips one day; returns true if the stored value actually changed. */
+    private boolean setBit(long epochDay, boolean completed) {
+        long word = epochDay >> 6;
+        long mask = 1L << epochDay;
+        if (!completed) {
+            Bitmap b = bitmap;
+            long w = word - b.base;
+            if (w < 0 || w >= b.words.length || (b.words[(int) w] & mask) == 0) return false;
+            b.words[(int) w] &= ~mask;
+            completedCount--;
         } else {
-            unmarkCompletedOn(date);
+            int w = ensureWord(word);
+            long[] words = bitmap.words;
+            if ((words[w] & mask) != 0) return false;
+            words[w] |= mask;
+            completedCount++;
+        }
+        completionsView = null;
+        synchronized (streakLock) {
+            if (streaks != null) {
+                if (completed) {
+                    streaks.add(epochDay);
+                } else {
+                    streaks.remove(epochDay);
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Grow the bitmap (in either direction) so it covers the given word; returns its index. */
+    private int ensureWord(long word) {
+        Bitmap b = bitmap;
+        long[] words = b.words;
+        if (words.length == 0) {
+            bitmap = new Bitmap(word, new long[1]);
+            return 0;
+        }
+        if (word < b.base) {
+            int shift = (int) (b.base - word);
+            int grow = Math.max(shift, words.length >> 1);
+            long[] next = new long[words.length + grow];
+            System.arraycopy(words, 0, next, grow, words.length);
+            b = new Bitmap(b.base - grow, next);
+            bitmap = b;
+        } else if (word - b.base >= words.length) {
+            int needed = (int) (word - b.base) + 1;
+            b = new Bitmap(b.base, Arrays.copyOf(words, Math.max(needed, words.length + (words.length >> 1) + 1)));
+            bitmap = b;
         }
+        return (int) (word - b.base);
     }
 }
@@ -0,0 +1,116 @@
+package com.ramika.habit.model;
+
+import java.time.DayOfWeek;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Streaks of one habit under one schedule. Only scheduled days count: a streak is a run of
+// consecutive *scheduled* days that were all completed, so rest days neither extend nor break
+// it, and completions on rest days are ignored.
+//
+// Scheduled days are numbered consecutively (ordinal = number of scheduled days before it,
+// counted from a fixed origin), which turns streaks into runs of consecutive integers. Those
+// runs are kept in a TreeMap, with a count of runs per length, so a single day changing is
+// a merge or split of at most two runs: O(log runs), no rescan of the history.
+//
+// Not thread-safe; Habit guards it.
+final class StreakTracker {
+    private final int mask;    // bit n = DayOfWeek n+1 (Monday = bit 0) is scheduled
+    private final int perWeek;
+
+    private final TreeMap<Long, Long> runs = new TreeMap<>();       // first ordinal -> last ordinal
+    private final TreeMap<Long, Integer> lengths = new TreeMap<>(); // run length -> number of runs
+
+    StreakTracker(EnumSet<DayOfWeek> schedule) {
+        int m = 0;
+        if (schedule != null) {
+            for (DayOfWeek d : schedule) m |= 1 << (d.getValue() - 1);
+        }
+        mask = m;
+        perWeek = Integer.bitCount(m);
+    }
+
+    boolean isScheduled(long epochDay) {
+        return (mask & (1 << dayIndex(epochDay))) != 0;
+    }
+
+    /** A day became completed. */
+    void add(long epochDay) {
+        if (!isScheduled(epochDay)) return;
+        long o = ordinal(epochDay);
+        Map.Entry<Long, Long> left = runs.floorEntry(o);
+        if (left != null && left.getValue() >= o) return; // already counted
+
+        long start = o;
+        long end = o;
+        if (left != null && left.getValue() == o - 1) {
+            start = left.getKey();
+            dropRun(start, left.getValue());
+        }
+        Long rightEnd = runs.get(o + 1);
+        if (rightEnd != null) {
+            end = rightEnd;
+            dropRun(o + 1, rightEnd);
+        }
+        addRun(start, end);
+    }
+
+    /** A day stopped being completed. */
+    void remove(long epochDay) {
+        if (!isScheduled(epochDay)) return;
+        long o = ordinal(epochDay);
+        Map.Entry<Long, Long> run = runs.floorEntry(o);
+        if (run == null || run.getValue() < o) return;
+
+        long start = run.getKey();
+        long end = run.getValue();
+        dropRun(start, end);
+        if (start < o) addRun(start, o - 1);
+        if (o < end) addRun(o + 1, end);
+    }
+
+    /** Longest run of completed scheduled days ever. */
+    long longest() {
+        return lengths.isEmpty() ? 0 : lengths.lastKey();
+    }
+
+    /**
+     * Run ending at the last scheduled day up to today. Today only counts once completed; while
+     * it's still open the streak through the previous scheduled day stands.
+     */
+    long current(long today) {
+        if (perWeek == 0) return 0;
+        long anchor = ordinal(today) - 1; // last scheduled day before today
+        if (isScheduled(today) && contains(anchor + 1)) anchor++;
+        Map.Entry<Long, Long> run = runs.floorEntry(anchor);
+        if (run == null || run.getValue() < anchor) return 0;
+        return anchor - run.getKey() + 1;
+    }
+
+    private boolean contains(long o) {
+        Map.Entry<Long, Long> run = runs.floorEntry(o);
+        return run != null && run.getValue() >= o;
+    }
+
+    private void addRun(long start, long end) {
+        runs.put(start, end);
+        lengths.merge(end - start + 1, 1, Integer::sum);
+    }
+
+    private void dropRun(long start, long end) {
+        runs.remove(start);
+        lengths.computeIfPresent(end - start + 1, (len, n) -> n == 1 ? null : n - 1);
+    }
+
+    // scheduled days before epochDay (epoch day 0 was a Thursday: week starts on Monday)
+    private long ordinal(long epochDay) {
+        long week = Math.floorDiv(epochDay + 3, 7);
+        return week * perWeek + Integer.bitCount(mask & ((1 << dayIndex(epochDay)) - 1));
+    }
+
+    // Monday = 0 ... Sunday = 6
+    private static int dayIndex(long epochDay) {
+        return Math.floorMod(epochDay + 3, 7);
+    }
+}
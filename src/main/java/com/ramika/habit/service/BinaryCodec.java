@@ -0,0 +1,317 @@
+package com.ramika.habit.service;
+
+import com.ramika.habit.model.Category;
+import com.ramika.habit.model.Habit;
+import com.ramika.habit.model.Priority;
+import com.ramika.habit.model.Status;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compact binary snapshot format (version 2):
+ *
+ *   "HHSB" version:u8 habitCount:varint
+ *   per habit:
+ *     id:16 bytes (msb, lsb)   name:varint length + 1 (0 = null), UTF-8
+ *     priority:u8 category:u8 status:u8 (enum ordinals, 0xFF = null)
+ *     schedule:u8 (bit n = DayOfWeek n+1, Monday = bit 0)
+ *     runCount:varint, then per run of consecutive completed days:
+ *       gap:varint (first run: zigzag epoch day; later: days since previous run ended)
+ *       length:varint
+ *     rollups:u8 (0 = none, 1 = closed rollup buckets follow, see SummaryService)
+ *       mask:u8 asOf:varint (zigzag epoch day)
+ *       per period (week, month, year): bucketCount:varint, then per bucket in key order:
+ *         key:varint (first: zigzag key; later: gap from previous key)
+ *         completed:varint bestStreak:varint
+ *
+ * Version 1 files (no rollups byte) still load.
+ *
+ * Sparse histories cost ~2 bytes per completion, streaks ~2 bytes per streak.
+ */
+final class BinaryCodec {
+    private BinaryCodec() {}
+
+    static final byte[] MAGIC = { 'H', 'H', 'S', 'B' };
+    static final int VERSION = 2;
+
+    private static final int NULL_ORDINAL = 0xFF;
+
+    // smallest encodings, to bound counts by the bytes left before allocating or looping
+    private static final int MIN_HABIT_BYTES = 16 + 1 + 4 + 1; // id, empty name, enums + schedule, no runs
+    private static final int MIN_RUN_BYTES = 2;                // gap + length
+    private static final int MIN_BUCKET_BYTES = 3;             // key + completed + best
+
+    // completion days outside this range mean a damaged file, not a real history; saves, loads
+    // and imports in either format hold to it, so nothing is written that can't be read back
+    private static final long MIN_DAY = LocalDate.of(1900, 1, 1).toEpochDay();
+    private static final long MAX_DAY = LocalDate.of(2200, 1, 1).toEpochDay();
+
+    static boolean isStorableDay(long day) {
+        return day >= MIN_DAY && day <= MAX_DAY;
+    }
+
+    /** Fails unless every completion of h is on a storable day. */
+    static void checkDays(Habit h) throws IOException {
+        long[] range = { Long.MAX_VALUE, Long.MIN_VALUE }; // first, last (days come in order)
+        h.forEachCompletedDay(day -> {
+            if (range[0] == Long.MAX_VALUE) range[0] = day;
+            range[1] = day;
+        });
+        if (range[0] <= range[1]) checkRange(range[0], range[1]);
+    }
+
+    private static void checkRange(long first, long last) throws IOException {
+        if (!isStorableDay(first)) throw new IOException("completion day out of range: " + LocalDate.ofEpochDay(first));
+        if (!isStorableDay(last))  throw new IOException("completion day out of range: " + LocalDate.ofEpochDay(last));
+    }
+
+    static boolean isBinary(byte[] body) {
+        if (body.length < MAGIC.length) return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (body[i] != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    // ===== encode =====
+
+    static void encode(Collection<Habit> habits, Map<UUID, SummaryService.ClosedBuckets> closed, OutputStream out)
+            throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        writeVarint(out, habits.size());
+
+        for (Habit h : habits) {
+            UUID id = h.getId();
+            writeLong(out, id.getMostSignificantBits());
+            writeLong(out, id.getLeastSignificantBits());
+
+            if (h.getName() == null) {
+                writeVarint(out, 0);
+            } else {
+                byte[] name = h.getName().getBytes(StandardCharsets.UTF_8);
+                writeVarint(out, name.length + 1L);
+                out.write(name);
+            }
+
+            out.write(ordinal(h.getPriority()));
+            out.write(ordinal(h.getCategory()));
+            out.write(ordinal(h.getActiveStatus()));
+            out.write(scheduleMask(h.getSchedule()));
+
+            writeRuns(out, h);
+            writeRollups(out, closed.get(id));
+        }
+    }
+
+    private static void writeRollups(OutputStream out, SummaryService.ClosedBuckets closed) throws IOException {
+        if (closed == null) {
+            out.write(0);
+            return;
+        }
+        out.write(1);
+        out.write(closed.mask);
+        writeVarint(out, zigzag(closed.asOf));
+        for (SummaryService.Bucket p : SummaryService.Bucket.values()) {
+            long[] flat = closed.buckets.get(p);
+            int n = flat == null ? 0 : flat.length / 3;
+            writeVarint(out, n);
+            for (int i = 0; i < n; i++) {
+                long key = flat[3 * i];
+                writeVarint(out, i == 0 ? zigzag(key) : key - flat[3 * i - 3]);
+                writeVarint(out, flat[3 * i + 1]);
+                writeVarint(out, flat[3 * i + 2]);
+            }
+        }
+    }
+
+    private static void writeRuns(OutputStream out, Habit h) throws IOException {
+        // collect runs first: the count goes before them
+        List<long[]> runs = new ArrayList<>();
+        h.forEachCompletedDay(day -> {
+            long[] last = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+            if (last != null && last[0] + last[1] == day) {
+                last[1]++;
+            } else {
+                runs.add(new long[] { day, 1 });
+            }
+        });
+
+        // runs come in order, so the first and the last bound every day
+        if (!runs.isEmpty()) {
+            long[] last = runs.get(runs.size() - 1);
+            checkRange(runs.get(0)[0], last[0] + last[1] - 1);
+        }
+
+        writeVarint(out, runs.size());
+        long prevEnd = 0;
+        for (int i = 0; i < runs.size(); i++) {
+            long start = runs.get(i)[0];
+            long len = runs.get(i)[1];
+            writeVarint(out, i == 0 ? zigzag(start) : start - prevEnd);
+            writeVarint(out, len);
+            prevEnd = start + len;
+        }
+    }
+
+    // ===== decode =====
+
+    /** Habits in body; each habit's saved closed rollups go into closed (when not null). */
+    static List<Habit> decode(byte[] body, Map<UUID, SummaryService.ClosedBuckets> closed) throws IOException {
+        Cursor in = new Cursor(body);
+        in.pos = MAGIC.length;
+        int version = in.u8();
+        if (version != 1 && version != VERSION) throw new IOException("unsupported snapshot version " + version);
+
+        int count = in.count(MIN_HABIT_BYTES);
+        List<Habit> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UUID id = new UUID(in.i64(), in.i64());
+
+            int nameLen = (int) in.varint();
+            String name = nameLen == 0 ? null : in.utf8(nameLen - 1);
+
+            Priority priority = enumAt(Priority.values(), in.u8(), Priority.LOW);
+            Category category = enumAt(Category.values(), in.u8(), Category.OTHER);
+            Status status     = enumAt(Status.values(), in.u8(), Status.ACTIVE);
+
+            Habit h = new Habit(id, name, priority, category, scheduleOf(in.u8()));
+            if (status == Status.INACTIVE) h.setActiveStatus(Status.INACTIVE);
+
+            int runCount = in.count(MIN_RUN_BYTES);
+            long prevEnd = 0;
+            for (int k = 0; k < runCount; k++) {
+                long gap = in.varint();
+                long start = k == 0 ? unzigzag(gap) : prevEnd + gap;
+                long len = in.varint();
+                // runs are non-empty, ascending and inside the sane range (also rules out overflow)
+                if (len < 1 || start < MIN_DAY || start > MAX_DAY || len > MAX_DAY - start + 1
+                        || (k > 0 && gap < 1)) {
+                    throw new IOException("bad completion run");
+                }
+                for (long d = start; d < start + len; d++) h.setCompletedOnEpochDay(d, true);
+                prevEnd = start + len;
+            }
+            if (version >= 2) {
+                SummaryService.ClosedBuckets rollups = readRollups(in);
+                if (closed != null && rollups != null) closed.put(id, rollups);
+            }
+            out.add(h);
+        }
+        return out;
+    }
+
+    private static SummaryService.ClosedBuckets readRollups(Cursor in) throws IOException {
+        if (in.u8() == 0) return null;
+        int mask = in.u8();
+        long asOf = unzigzag(in.varint());
+        Map<SummaryService.Bucket, long[]> buckets = new EnumMap<>(SummaryService.Bucket.class);
+        for (SummaryService.Bucket p : SummaryService.Bucket.values()) {
+            int n = in.count(MIN_BUCKET_BYTES);
+            long[] flat = new long[n * 3];
+            for (int i = 0; i < n; i++) {
+                long gap = in.varint();
+                flat[3 * i] = i == 0 ? unzigzag(gap) : flat[3 * i - 3] + gap;
+                flat[3 * i + 1] = in.varint();
+                flat[3 * i + 2] = in.varint();
+            }
+            buckets.put(p, flat);
+        }
+        return new SummaryService.ClosedBuckets(mask, asOf, buckets);
+    }
+
+    // ===== helpers =====
+
+    private static int ordinal(Enum<?> e) { return e == null ? NULL_ORDINAL : e.ordinal(); }
+
+    private static <E extends Enum<E>> E enumAt(E[] values, int ordinal, E def) {
+        return ordinal < values.length ? values[ordinal] : def;
+    }
+
+    private static int scheduleMask(EnumSet<DayOfWeek> schedule) {
+        int mask = 0;
+        if (schedule != null) {
+            for (DayOfWeek d : schedule) mask |= 1 << (d.getValue() - 1);
+        }
+        return mask;
+    }
+
+    private static EnumSet<DayOfWeek> scheduleOf(int mask) {
+        EnumSet<DayOfWeek> out = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek d : DayOfWeek.values()) {
+            if ((mask & (1 << (d.getValue() - 1))) != 0) out.add(d);
+        }
+        return out;
+    }
+
+    private static long zigzag(long v)   { return (v << 1) ^ (v >> 63); }
+    private static long unzigzag(long v) { return (v >>> 1) ^ -(v & 1); }
+
+    private static void writeVarint(OutputStream out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static void writeLong(OutputStream out, long v) throws IOException {
+        for (int shift = 56; shift >= 0; shift -= 8) out.write((int) (v >>> shift));
+    }
+
+    /** Bounds-checked reader over the snapshot body. */
+    private static final class Cursor {
+        private final byte[] buf;
+        private int pos;
+
+        Cursor(byte[] buf) { this.buf = buf; }
+
+        int remaining() { return buf.length - pos; }
+
+        /** A count of items at least minBytes each: more than the bytes left can hold is damage. */
+        int count(int minBytes) throws IOException {
+            long n = varint();
+            if (n < 0 || n > remaining() / minBytes) throw new IOException("bad count " + n);
+            return (int) n;
+        }
+
+        int u8() throws IOException {
+            if (pos >= buf.length) throw new IOException("truncated snapshot");
+            return buf[pos++] & 0xFF;
+        }
+
+        long i64() throws IOException {
+            long v = 0;
+            for (int i = 0; i < 8; i++) v = (v << 8) | u8();
+            return v;
+        }
+
+        long varint() throws IOException {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = u8();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new IOException("malformed varint");
+        }
+
+        String utf8(int len) throws IOException {
+            if (len < 0 || pos + len > buf.length) throw new IOException("truncated snapshot");
+            String s = new String(buf, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return s;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.ramika.habit.service;
+
+import com.ramika.habit.model.Habit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Which habits get completed together: for every pair of habits, on the days both were
+ * scheduled, how often each was completed and how often both were. "On days you work out you
+ * also meditate 80% of the time" is rate(workout, meditate).
+ *
+ * Each habit's history is copied into an epoch-day bitmap (bit day & 63 of word day >> 6,
+ * all aligned to one window). "Both scheduled" is a weekday mask, and since 64 = 1 (mod 7) a
+ * mask's bitmap repeats every 7 words, so a pair is counted with word-wide AND + bitCount over
+ * the words where both habits have completions. The full matrix is built in parallel across
+ * rows; after that a single completion change updates one row in O(habits), and adding a
+ * habit or changing its schedule recounts its row.
+ *
+ * Memory is O(habits^2): meant for one user's habits. Get it from SummaryService.coCompletion();
+ * SummaryService keeps it up to date. Thread-safe via its own monitor.
+ */
+public final class CoCompletion {
+    // build in parallel once there's at least this much pair-word work
+    private static final long PARALLEL_WORK = 1 << 18;
+
+    private final Map<UUID, Integer> slotOf = new HashMap<>();
+    private Habit[] habits;
+    private int[] masks;    // schedule, bit 0 = Monday
+    private long[][] bits;  // completions, words [firstWord, firstWord + words)
+    private int[] lo;       // first and one past last non-zero word, relative
+    private int[] hi;
+    private int[][] both;   // both[i][j]: days both scheduled and completed
+    private int[][] given;  // given[i][j]: days i completed while both scheduled
+    private int slots;      // slots in use or freed: [0, slots)
+    private int[] freeSlots = new int[8];
+    private int freeCount;
+
+    private long firstWord;
+    private int words;
+
+    /** One ordered pair: of givenDays on which `given` was completed (both scheduled), `also` was too on `together`. */
+    public record Pair(UUID given, UUID also, int together, int givenDays) {
+        public double rate() {
+            return givenDays == 0 ? 0.0 : (double) together / givenDays;
+        }
+    }
+
+    CoCompletion(Collection<Habit> all, long today) {
+        reload(all, today);
+    }
+
+    /** Start over from all (after a bulk load or a rebuild). */
+    synchronized void reload(Collection<Habit> all, long today) {
+        slotOf.clear();
+        habits = new Habit[16];
+        masks = new int[16];
+        bits = new long[16][];
+        lo = new int[16];
+        hi = new int[16];
+        both = new int[16][16];
+        given = new int[16][16];
+        slots = 0;
+        freeCount = 0;
+
+        // window: every completion plus today, with room to grow forward
+        long min = today;
+        long max = today;
+        for (Habit h : all) {
+            long[] range = { Long.MAX_VALUE, Long.MIN_VALUE };
+            h.forEachCompletedDay(d -> {
+                range[0] = Math.min(range[0], d);
+                range[1] = Math.max(range[1], d);
+            });
+            min = Math.min(min, range[0]);
+            max = Math.max(max, range[1]);
+        }
+        firstWord = min >> 6;
+        words = (int) ((max >> 6) - firstWord) + 8;
+
+        for (Habit h : all) {
+            int s = allocate(h.getId());
+            fill(s, h);
+        }
+
+        long work = (long) slots * slots / 2 * Math.max(1, words);
+        IntStream rows = IntStream.range(0, slots);
+        if (work >= PARALLEL_WORK) rows = rows.parallel();
+        // row i writes cells (i, j) and (j, i) for j > i only: no two rows touch the same cell
+        rows.forEach(i -> {
+            for (int j = i + 1; j < slots; j++) count(i, j);
+        });
+    }
+
+    // ===== queries =====
+
+    /** Of the days `given` was completed (and `also` scheduled), the share `also` was completed too. */
+    public synchronized double rate(UUID given, UUID also) {
+        Integer i = slotOf.get(given);
+        Integer j = slotOf.get(also);
+        if (i == null || j == null || i.equals(j)) return 0.0;
+        return this.given[i][j] == 0 ? 0.0 : (double) both[i][j] / this.given[i][j];
+    }
+
+    /** Days both habits were scheduled and completed. */
+    public synchronized int together(UUID a, UUID b) {
+        Integer i = slotOf.get(a);
+        Integer j = slotOf.get(b);
+        if (i == null || j == null || i.equals(j)) return 0;
+        return both[i][j];
+    }
+
+    /**
+     * Ordered pairs completed together at least once, where `given` was completed on at least
+     * minDays shared scheduled days; highest rate first, then most days together.
+     */
+    public synchronized List<Pair> pairs(int minDays) {
+        List<Pair> out = new ArrayList<>();
+        for (int i = 0; i < slots; i++) {
+            if (habits[i] == null) continue;
+            for (int j = 0; j < slots; j++) {
+                if (j == i || habits[j] == null || both[i][j] == 0 || given[i][j] < minDays) continue;
+                out.add(new Pair(habits[i].getId(), habits[j].getId(), both[i][j], given[i][j]));
+            }
+        }
+        out.sort(Comparator.comparingDouble(Pair::rate).reversed()
+                .thenComparing(Comparator.comparingInt(Pair::together).reversed()));
+        return out;
+    }
+
+    /** Rough heap footprint of the matrix and the copied histories. */
+    synchronized long estimatedBytes() {
+        long cap = habits.length;
+        long bytes = 256 + cap * 40 + 2 * cap * (16 + 4 * cap) + 64L * slotOf.size();
+        for (long[] b : bits) if (b != null) bytes += 16 + 8L * b.length;
+        return bytes;
+    }
+
+    // ===== maintenance (called by SummaryService) =====
+
+    /** Add h or replace what's held under its id, and recount its row. */
+    synchronized void put(Habit h) {
+        Integer slot = slotOf.get(h.getId());
+        int s = slot != null ? slot : allocate(h.getId());
+        fill(s, h);
+        for (int j = 0; j < slots; j++) {
+            if (j != s && habits[j] != null) count(s, j);
+        }
+    }
+
+    /** Hold h in place of the habit under its id; its row stays as counted until completionChanged. */
+    synchronized void replace(Habit h) {
+        Integer slot = slotOf.get(h.getId());
+        if (slot != null) habits[slot] = h;
+    }
+
+    synchronized void remove(UUID id) {
+        Integer slot = slotOf.remove(id);
+        if (slot == null) return;
+        int s = slot;
+        habits[s] = null;
+        bits[s] = null;
+        for (int j = 0; j < slots; j++) {
+            both[s][j] = both[j][s] = 0;
+            given[s][j] = given[j][s] = 0;
+        }
+        if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        freeSlots[freeCount++] = s;
+    }
+
+    /** h's completion on day was set or cleared: O(habits). */
+    synchronized void completionChanged(Habit h, long day) {
+        Integer slot = slotOf.get(h.getId());
+        if (slot == null || habits[slot] != h) return;
+        int k = slot;
+        cover(day);
+        int w = (int) ((day >> 6) - firstWord);
+        long bit = 1L << day;
+        boolean now = h.isCompletedOnEpochDay(day);
+        if (((bits[k][w] & bit) != 0) == now) return;
+        bits[k][w] ^= bit;
+        if (now && lo[k] >= hi[k]) {
+            lo[k] = w;
+            hi[k] = w + 1;
+        } else if (now) {
+            lo[k] = Math.min(lo[k], w);
+            hi[k] = Math.max(hi[k], w + 1);
+        }
+
+        int delta = now ? 1 : -1;
+        int weekday = 1 << SummaryService.weekdayIndex(day);
+        if ((masks[k] & weekday) == 0) return;
+        for (int j = 0; j < slots; j++) {
+            if (j == k || habits[j] == null || (masks[j] & weekday) == 0) continue;
+            given[k][j] += delta;
+            if ((bits[j][w] & bit) != 0) {
+                both[k][j] += delta;
+                both[j][k] += delta;
+            }
+        }
+    }
+
+    // ===== internals =====
+
+    private int allocate(UUID id) {
+        int s = freeCount > 0 ? freeSlots[--freeCount] : slots++;
+        if (s >= habits.length) {
+            int cap = habits.length * 2;
+            habits = Arrays.copyOf(habits, cap);
+            masks = Arrays.copyOf(masks, cap);
+            bits = Arrays.copyOf(bits, cap);
+            lo = Arrays.copyOf(lo, cap);
+            hi = Arrays.copyOf(hi, cap);
+            both = grow(both, cap);
+            given = grow(given, cap);
+        }
+        slotOf.put(id, s);
+        return s;
+    }
+
+    private static int[][] grow(int[][] m, int cap) {
+        int[][] out = new int[cap][];
+        for (int i = 0; i < cap; i++) out[i] = i < m.length ? Arrays.copyOf(m[i], cap) : new int[cap];
+        return out;
+    }
+
+    // copy h into slot s (window already covers its history, except in put/completionChanged)
+    private void fill(int s, Habit h) {
+        habits[s] = h;
+        masks[s] = SummaryService.maskOf(h.getSchedule());
+        h.forEachCompletedDay(this::cover);
+        long[] b = new long[words];
+        int[] range = { Integer.MAX_VALUE, 0 };
+        h.forEachCompletedDay(d -> {
+            int w = (int) ((d >> 6) - firstWord);
+            b[w] |= 1L << d;
+            range[0] = Math.min(range[0], w);
+            range[1] = Math.max(range[1], w + 1);
+        });
+        bits[s] = b;
+        lo[s] = range[0] == Integer.MAX_VALUE ? 0 : range[0];
+        hi[s] = range[1];
+    }
+
+    // count pair (i, j) from scratch
+    private void count(int i, int j) {
+        int from = Math.max(lo[i], lo[j]);
+        int to = Math.min(hi[i], hi[j]);
+        long[] pattern = PATTERNS[masks[i] & masks[j]];
+        long[] a = bits[i];
+        long[] b = bits[j];
+        int ab = 0, ai = 0, bj = 0;
+        int phase = (int) Math.floorMod(firstWord + from, 7L);
+        for (int w = from; w < to; w++) {
+            long s = pattern[phase];
+            if (++phase == 7) phase = 0;
+            long x = a[w] & s;
+            long y = b[w] & s;
+            ab += Long.bitCount(x & y);
+            ai += Long.bitCount(x);
+            bj += Long.bitCount(y);
+        }
+        // completions outside the overlap still count towards given[][]
+        ai += countScheduled(a, masks[i] & masks[j], lo[i], hi[i], from, to);
+        bj += countScheduled(b, masks[i] & masks[j], lo[j], hi[j], from, to);
+        both[i][j] = both[j][i] = ab;
+        given[i][j] = ai;
+        given[j][i] = bj;
+    }
+
+    // completed days of a on mask's weekdays in words [lo, hi) outside [skipFrom, skipTo)
+    private int countScheduled(long[] a, int mask, int lo, int hi, int skipFrom, int skipTo) {
+        long[] pattern = PATTERNS[mask];
+        int n = 0;
+        for (int w = lo; w < hi; w++) {
+            if (w >= skipFrom && w < skipTo) {
+                w = skipTo - 1;
+                continue;
+            }
+            n += Long.bitCount(a[w] & pattern[(int) Math.floorMod(firstWord + w, 7L)]);
+        }
+        return n;
+    }
+
+    // per weekday mask, the 7 words its day bitmap cycles through, indexed by (word mod 7)
+    private static final long[][] PATTERNS = new long[128][7];
+    static {
+        for (int mask = 0; mask < 128; mask++) {
+            for (int r = 0; r < 7; r++) {
+                for (int bit = 0; bit < 64; bit++) {
+                    long day = 64L * r + bit; // any word with (word mod 7) == r has the same weekdays
+                    if ((mask & (1 << SummaryService.weekdayIndex(day))) != 0) PATTERNS[mask][r] |= 1L << bit;
+                }
+            }
+        }
+    }
+
+
+    // widen the window (every bitmap) to hold day
+    private void cover(long day) {
+        long w = day >> 6;
+        if (w >= firstWord && w < firstWord + words) return;
+        long newFirst = Math.min(firstWord, w - 8);
+        long newEnd = Math.max(firstWord + words, w + 9);
+        int shift = (int) (firstWord - newFirst);
+        int newWords = (int) (newEnd - newFirst);
+        for (int s = 0; s < slots; s++) {
+            if (bits[s] == null) continue;
+            long[] b = new long[newWords];
+            System.arraycopy(bits[s], 0, b, shift, bits[s].length);
+            bits[s] = b;
+            lo[s] += shift;
+            hi[s] += shift;
+        }
+        firstWord = newFirst;
+        words = newWords;
+    }
+}
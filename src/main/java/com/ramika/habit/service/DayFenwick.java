@@ -0,0 +1,98 @@
+package com.ramika.habit.service;
+
+/**
+ * Fenwick (binary indexed) tree of per-day counts over a window of epoch days: point updates
+ * and prefix / range sums in O(log n). The window starts around the first day added and
+ * doubles to cover days outside it. Not thread-safe.
+ */
+final class DayFenwick {
+    private static final int INITIAL_DAYS = 512;
+
+    private long base;   // epoch day of tree[1]
+    private int[] tree;  // 1-based; tree.length - 1 days
+
+    DayFenwick(long firstDay) {
+        base = firstDay - INITIAL_DAYS / 2;
+        tree = new int[INITIAL_DAYS + 1];
+    }
+
+    void add(long day, int delta) {
+        if (delta == 0) return;
+        cover(day);
+        for (int i = (int) (day - base) + 1; i < tree.length; i += i & -i) tree[i] += delta;
+    }
+
+    /** Sum over [from, to] (inclusive; days outside the window count as 0). */
+    int range(long from, long to) {
+        if (to < from) return 0;
+        return prefix(to) - prefix(from - 1);
+    }
+
+    int get(long day) {
+        return range(day, day);
+    }
+
+    /** Sum over every day up to and including day. */
+    int prefix(long day) {
+        long n = Math.min(day - base + 1, tree.length - 1);
+        int sum = 0;
+        for (int i = (int) Math.max(n, 0); i > 0; i -= i & -i) sum += tree[i];
+        return sum;
+    }
+
+    /** Every day with a non-zero count and its count, in day order. */
+    void forEachNonZero(SummaryService.DayCount action) {
+        int[] values = values(tree.clone());
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] != 0) action.accept(base + i - 1, values[i]);
+        }
+    }
+
+    /** Rough heap footprint of this tree. */
+    long estimatedBytes() {
+        return 48 + 4L * tree.length;
+    }
+
+    /** First day with a non-zero count (counts must not go negative); Long.MAX_VALUE when all zero. */
+    long firstNonZero() {
+        int size = tree.length - 1;
+        int pos = 0; // prefix(base + pos - 1) == 0
+        for (int step = Integer.highestOneBit(size); step > 0; step >>= 1) {
+            if (pos + step <= size && tree[pos + step] == 0) pos += step;
+        }
+        return pos == size ? Long.MAX_VALUE : base + pos;
+    }
+
+    // back to plain per-day values, in place: undo the O(n) build in cover(), in reverse
+    private static int[] values(int[] tree) {
+        int size = tree.length - 1;
+        for (int i = size; i > 0; i--) {
+            int j = i + (i & -i);
+            if (j <= size) tree[j] -= tree[i];
+        }
+        return tree;
+    }
+
+    // grow the window (doubling, in whichever direction) until it holds day
+    private void cover(long day) {
+        int size = tree.length - 1;
+        if (day >= base && day < base + size) return;
+
+        int[] values = values(tree);
+
+        long newBase = base;
+        int newSize = size;
+        while (day < newBase || day >= newBase + newSize) {
+            if (day < newBase) newBase -= newSize;
+            newSize *= 2;
+        }
+        int[] next = new int[newSize + 1];
+        System.arraycopy(values, 1, next, (int) (base - newBase) + 1, size);
+        for (int i = 1; i <= newSize; i++) {
+            int j = i + (i & -i);
+            if (j <= newSize) next[j] += next[i];
+        }
+        base = newBase;
+        tree = next;
+    }
+}
@@ -0,0 +1,7 @@
+package com.ramika.habit.service;
+
+/** A HabitService mutation, run on the writer thread when submitted via HabitService.submit. */
+@FunctionalInterface
+public interface HabitCommand<T> {
+    T execute() throws Exception;
+}
@@ -0,0 +1,31 @@
+package com.ramika.habit.service;
+
+import com.ramika.habit.model.Habit;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Change notifications published by HabitService.events(), in the order the changes were made.
+ * Events from a batch arrive together once it commits; a rolled-back batch publishes nothing.
+ */
+public sealed interface HabitEvent {
+
+    /** A habit was added. */
+    record HabitCreated(Habit habit) implements HabitEvent {}
+
+    /** A habit was deleted. */
+    record HabitRemoved(UUID id) implements HabitEvent {}
+
+    /** Name, priority, category or active status changed. */
+    record HabitUpdated(Habit habit) implements HabitEvent {}
+
+    /** The habit's completion for date was set or cleared. */
+    record CompletionChanged(Habit habit, LocalDate date) implements HabitEvent {}
+
+    /** The days the habit is scheduled on changed. */
+    record ScheduleChanged(Habit habit) implements HabitEvent {}
+
+    /** Habits were (re)loaded or the day rolled over: anything may have changed. */
+    record HabitsReloaded() implements HabitEvent {}
+}
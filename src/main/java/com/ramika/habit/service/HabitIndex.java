@@ -0,0 +1,216 @@
+package com.ramika.habit.service;
+
+import com.ramika.habit.model.Category;
+import com.ramika.habit.model.Habit;
+import com.ramika.habit.model.Priority;
+import com.ramika.habit.model.Status;
+import com.ramika.habit.service.HabitService.OrderKey;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bitmap secondary indexes behind HabitService.query(...).
+ *
+ * Every habit gets a slot; for each Category, Priority, Status and scheduled DayOfWeek there
+ * is a bitmap with one bit per slot, plus one for "completed today". A query is evaluated
+ * with word-wide AND / OR / AND-NOT over these bitmaps. Slots are also kept in OrderKey order
+ * (priority HIGH first, then normalized name, then id), so the matches are read out in order
+ * by walking that list instead of sorting them per call. This is the only copy of that order:
+ * HabitService's ordered views and orderKeyOf read it from here.
+ *
+ * Thread-safe via its own monitor, a leaf lock: nothing else is locked while holding it.
+ * HabitService calls update(h) after each change, under the lock that serializes writes to h.
+ */
+final class HabitIndex {
+    private Habit[] habits = new Habit[64];
+    private final Map<UUID, Integer> slotOf = new HashMap<>();
+    private int[] freeSlots = new int[8];
+    private int freeCount;
+    private int nextSlot;
+
+    private final Map<Category, long[]>  byCategory = new EnumMap<>(Category.class);
+    private final Map<Priority, long[]>  byPriority = new EnumMap<>(Priority.class);
+    private final Map<Status, long[]>    byStatus   = new EnumMap<>(Status.class);
+    private final Map<DayOfWeek, long[]> byDay      = new EnumMap<>(DayOfWeek.class);
+    private long[] live = new long[1];
+    private long[] done = new long[1]; // completed on doneDay
+    private long doneDay = Long.MIN_VALUE;
+
+    // slots in result order, and the key each was filed under
+    private int[] order = new int[64];
+    private int orderSize;
+    private OrderKey[] keys = new OrderKey[64];
+
+    HabitIndex() {
+        for (Category c : Category.values())  byCategory.put(c, new long[1]);
+        for (Priority p : Priority.values())  byPriority.put(p, new long[1]);
+        for (Status s : Status.values())      byStatus.put(s, new long[1]);
+        for (DayOfWeek d : DayOfWeek.values()) byDay.put(d, new long[1]);
+    }
+
+    // ----- maintenance -----
+
+    /** Index h, replacing whatever was indexed under its id. */
+    synchronized void put(Habit h) {
+        Integer slot = slotOf.get(h.getId());
+        int s = slot != null ? slot : allocate(h.getId());
+        habits[s] = h;
+        refresh(s, h);
+    }
+
+    /** Re-read h's fields; ignored unless h is the habit currently indexed under its id. */
+    synchronized void update(Habit h) {
+        Integer slot = slotOf.get(h.getId());
+        if (slot != null && habits[slot] == h) refresh(slot, h);
+    }
+
+    synchronized void remove(UUID id) {
+        Integer slot = slotOf.remove(id);
+        if (slot == null) return;
+        int s = slot;
+        clearBits(s);
+        clear(live, s);
+        unorder(s);
+        habits[s] = null;
+        keys[s] = null;
+        if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        freeSlots[freeCount++] = s;
+    }
+
+    private int allocate(UUID id) {
+        int s = freeCount > 0 ? freeSlots[--freeCount] : nextSlot++;
+        if (s >= habits.length) {
+            int cap = habits.length * 2;
+            habits  = Arrays.copyOf(habits, cap);
+            keys    = Arrays.copyOf(keys, cap);
+            order   = Arrays.copyOf(order, cap);
+        }
+        int words = (s >> 6) + 1;
+        if (words > live.length) grow(Math.max(words, live.length * 2));
+        slotOf.put(id, s);
+        set(live, s);
+        return s;
+    }
+
+    private void grow(int words) {
+        byCategory.replaceAll((k, b) -> Arrays.copyOf(b, words));
+        byPriority.replaceAll((k, b) -> Arrays.copyOf(b, words));
+        byStatus.replaceAll((k, b) -> Arrays.copyOf(b, words));
+        byDay.replaceAll((k, b) -> Arrays.copyOf(b, words));
+        live = Arrays.copyOf(live, words);
+        done = Arrays.copyOf(done, words);
+    }
+
+    private void refresh(int s, Habit h) {
+        clearBits(s);
+        if (h.getCategory() != null) set(byCategory.get(h.getCategory()), s);
+        if (h.getPriority() != null) set(byPriority.get(h.getPriority()), s);
+        if (h.getActiveStatus() != null) set(byStatus.get(h.getActiveStatus()), s);
+        EnumSet<DayOfWeek> schedule = h.getSchedule();
+        if (schedule != null) {
+            for (DayOfWeek d : schedule) set(byDay.get(d), s);
+        }
+        if (doneDay != Long.MIN_VALUE && h.isCompletedOnEpochDay(doneDay)) set(done, s);
+
+        OrderKey key = OrderKey.of(h);
+        if (!key.equals(keys[s])) {
+            if (keys[s] != null) unorder(s);
+            keys[s] = key;
+            int at = -(search(key) + 1);
+            System.arraycopy(order, at, order, at + 1, orderSize - at);
+            order[at] = s;
+            orderSize++;
+        }
+    }
+
+    private void clearBits(int s) {
+        for (long[] b : byCategory.values()) clear(b, s);
+        for (long[] b : byPriority.values()) clear(b, s);
+        for (long[] b : byStatus.values()) clear(b, s);
+        for (long[] b : byDay.values()) clear(b, s);
+        clear(done, s);
+    }
+
+    private void unorder(int s) {
+        int at = search(keys[s]);
+        System.arraycopy(order, at + 1, order, at, orderSize - at - 1);
+        orderSize--;
+    }
+
+    // binary search of order; -(insertion point) - 1 when absent
+    private int search(OrderKey key) {
+        int lo = 0, hi = orderSize - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = keys[order[mid]].compareTo(key);
+            if (c < 0) lo = mid + 1;
+            else if (c > 0) hi = mid - 1;
+            else return mid;
+        }
+        return -(lo + 1);
+    }
+
+    // ----- queries -----
+
+    /** Key id is currently ordered by, or null when it isn't indexed. */
+    synchronized OrderKey keyOf(UUID id) {
+        Integer slot = slotOf.get(id);
+        return slot == null ? null : keys[slot];
+    }
+
+    /** Habits matching q, priority HIGH first, then by name. */
+    synchronized List<Habit> select(HabitQuery q) {
+        long[] match = q.eval(this);
+        List<Habit> out = new ArrayList<>();
+        for (int i = 0; i < orderSize; i++) {
+            int s = order[i];
+            if ((match[s >> 6] & (1L << s)) != 0) out.add(habits[s]);
+        }
+        return out;
+    }
+
+    synchronized int count(HabitQuery q) {
+        long[] match = q.eval(this);
+        int n = 0;
+        for (long w : match) n += Long.bitCount(w);
+        return n;
+    }
+
+    // Leaf bitmaps for HabitQuery; each returns a fresh copy it may modify. Caller holds this.
+
+    int words() { return live.length; }
+
+    long[] all() { return live.clone(); }
+
+    long[] category(Category c)  { return byCategory.get(c).clone(); }
+    long[] priority(Priority p)  { return byPriority.get(p).clone(); }
+    long[] status(Status s)      { return byStatus.get(s).clone(); }
+    long[] scheduledOn(DayOfWeek d) { return byDay.get(d).clone(); }
+
+    long[] doneToday() {
+        long today = LocalDate.now().toEpochDay();
+        if (doneDay != today) {
+            // first query of the day: re-derive the completion bits
+            doneDay = today;
+            Arrays.fill(done, 0);
+            for (int s : slotOf.values()) {
+                if (habits[s].isCompletedOnEpochDay(today)) set(done, s);
+            }
+        }
+        return done.clone();
+    }
+
+    // ----- bit helpers -----
+
+    private static void set(long[] b, int s)   { b[s >> 6] |= 1L << s; }
+    private static void clear(long[] b, int s) { b[s >> 6] &= ~(1L << s); }
+}
@@ -0,0 +1,79 @@
+package com.ramika.habit.service;
+
+import com.ramika.habit.model.Habit;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Immutable id -> habit map for HabitService's published View that iterates in creation
+ * order. Lookups go through a tree keyed by id and iteration walks one keyed by the habit's
+ * creation sequence (HabitService hands out one per habit and uses it in every map), so a
+ * habit keeps its place however often it leaves and re-enters a map.
+ *
+ * with / without return a new map sharing all but O(log n) nodes with this one; a map once
+ * handed out never changes, so readers need no lock and always see one consistent state.
+ */
+final class HabitMap extends AbstractMap<UUID, Habit> {
+    private record Slot(long seq, Habit habit) {}
+
+    static final HabitMap EMPTY = new HabitMap(PersistentTree.empty(), PersistentTree.empty());
+
+    private final PersistentTree<UUID, Slot> byId;
+    private final PersistentTree<Long, Habit> bySeq;
+
+    private HabitMap(PersistentTree<UUID, Slot> byId, PersistentTree<Long, Habit> bySeq) {
+        this.byId = byId;
+        this.bySeq = bySeq;
+    }
+
+    private final Set<Map.Entry<UUID, Habit>> entries = new AbstractSet<>() {
+        @Override public Iterator<Map.Entry<UUID, Habit>> iterator() {
+            Iterator<Map.Entry<Long, Habit>> it = bySeq.iterator();
+            return new Iterator<>() {
+                @Override public boolean hasNext() { return it.hasNext(); }
+                @Override public Map.Entry<UUID, Habit> next() {
+                    Habit h = it.next().getValue();
+                    return new SimpleImmutableEntry<>(h.getId(), h);
+                }
+            };
+        }
+
+        @Override public int size() { return byId.size(); }
+    };
+
+    @Override public Habit get(Object id)            { Slot s = slot(id); return s == null ? null : s.habit(); }
+    @Override public boolean containsKey(Object id)  { return slot(id) != null; }
+    @Override public int size()                      { return byId.size(); }
+    @Override public boolean isEmpty()               { return byId.size() == 0; }
+    @Override public Set<Map.Entry<UUID, Habit>> entrySet() { return entries; }
+
+    private Slot slot(Object id) {
+        return id instanceof UUID u ? byId.get(u) : null;
+    }
+
+    /** Creation sequence h was added under, or -1 when id isn't here. */
+    long seqOf(UUID id) {
+        Slot s = byId.get(id);
+        return s == null ? -1 : s.seq();
+    }
+
+    /** This map with h at position seq, replacing whatever is held under its id. */
+    HabitMap with(long seq, Habit h) {
+        Slot old = byId.get(h.getId());
+        if (old != null && old.seq() == seq && old.habit() == h) return this;
+        PersistentTree<Long, Habit> seqs = old != null && old.seq() != seq ? bySeq.remove(old.seq()) : bySeq;
+        return new HabitMap(byId.put(h.getId(), new Slot(seq, h)), seqs.put(seq, h));
+    }
+
+    /** This map without id. */
+    HabitMap without(UUID id) {
+        Slot old = byId.get(id);
+        if (old == null) return this;
+        return new HabitMap(byId.remove(id), bySeq.remove(old.seq()));
+    }
+}
@@ -0,0 +1,127 @@
+package com.ramika.habit.service;
+
+import com.ramika.habit.model.Category;
+import com.ramika.habit.model.Priority;
+import com.ramika.habit.model.Status;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+/**
+ * A filter over habits for HabitService.query(...) / count(...), built from indexed
+ * predicates and combined with and / or / not. For example, HIGH priority fitness habits not
+ * yet done today:
+ *
+ *   HabitQuery.priority(Priority.HIGH)
+ *           .and(HabitQuery.category(Category.FITNESS))
+ *           .and(HabitQuery.doneToday().not())
+ *
+ * Passing several values to one predicate matches any of them. Queries are immutable and
+ * can be kept and reused; "today" is whatever day it is when the query runs.
+ */
+public abstract class HabitQuery {
+    private HabitQuery() {}
+
+    // bitmap of matching slots; idx is locked by the caller
+    abstract long[] eval(HabitIndex idx);
+
+    // ----- predicates -----
+
+    /** Every habit. */
+    public static HabitQuery all() {
+        return of(HabitIndex::all);
+    }
+
+    public static HabitQuery category(Category... categories) {
+        return of(idx -> {
+            long[] out = new long[idx.words()];
+            for (Category c : categories) or(out, idx.category(c));
+            return out;
+        });
+    }
+
+    public static HabitQuery priority(Priority... priorities) {
+        return of(idx -> {
+            long[] out = new long[idx.words()];
+            for (Priority p : priorities) or(out, idx.priority(p));
+            return out;
+        });
+    }
+
+    public static HabitQuery status(Status status) {
+        return of(idx -> idx.status(status));
+    }
+
+    /** Shorthand for status(Status.ACTIVE). */
+    public static HabitQuery active() {
+        return status(Status.ACTIVE);
+    }
+
+    /** Habits whose schedule includes day. */
+    public static HabitQuery scheduledOn(DayOfWeek day) {
+        return of(idx -> idx.scheduledOn(day));
+    }
+
+    /** Habits whose schedule includes today's weekday. */
+    public static HabitQuery scheduledToday() {
+        return of(idx -> idx.scheduledOn(LocalDate.now().getDayOfWeek()));
+    }
+
+    /** Habits with a completion recorded for today. */
+    public static HabitQuery doneToday() {
+        return of(HabitIndex::doneToday);
+    }
+
+    // ----- combinators -----
+
+    /** Habits matching both this and other. */
+    public HabitQuery and(HabitQuery other) {
+        HabitQuery self = this;
+        return of(idx -> {
+            long[] a = self.eval(idx);
+            long[] b = other.eval(idx);
+            for (int i = 0; i < a.length; i++) a[i] &= b[i];
+            return a;
+        });
+    }
+
+    /** Habits matching this, other, or both. */
+    public HabitQuery or(HabitQuery other) {
+        HabitQuery self = this;
+        return of(idx -> {
+            long[] a = self.eval(idx);
+            or(a, other.eval(idx));
+            return a;
+        });
+    }
+
+    /** Habits not matching this. */
+    public HabitQuery not() {
+        HabitQuery self = this;
+        return of(idx -> {
+            long[] a = idx.all();
+            long[] b = self.eval(idx);
+            for (int i = 0; i < a.length; i++) a[i] &= ~b[i];
+            return a;
+        });
+    }
+
+    // ----- helpers -----
+
+    private interface Eval {
+        long[] apply(HabitIndex idx);
+    }
+
+    private static HabitQuery of(Eval e) {
+        return new HabitQuery() {
+            @Override
+            long[] eval(HabitIndex idx) {
+                return e.apply(idx);
+            }
+        };
+    }
+
+    private static void or(long[] into, long[] b) {
+        for (int i = 0; i < into.length; i++) into[i] |= b[i];
+    }
+}
@@ -9,6 +9,7 @@ import com.ramika.habit.model.Habit;
 import com.ramika.habit.model.Priority;
 import com.ramika.habit.model.Status;
 
+import javafx.application.Platform;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.ReadOnlyDoubleProperty;
@@ -16,188 +17,1043 @@ import javafx.beans.property.ReadOnlyIntegerProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 
+import java.nio.file.Path;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.EnumSet;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-// Singleton class to handle all habit functionality
+// Handles all habit functionality for one user. getInstance() is the desktop user's service;
+// TenantRegistry hosts one per tenant, each with its own locks and storage directory.
+//
+// Thread-safe: structural changes (create, remove, deactivate, rename, schedule, hydrate) are
+// serialized on structureLock and publish a new immutable View of the habit maps, the day index
+// and the name index. A View is built from persistent trees, so the next one shares everything
+// but the changed habit's entries and costs O(log n). Per-habit changes (completions, priority,
+// category) only take that habit's striped lock. Every change also holds the read side of
+// batchGate, so a batch, or Persistence copying the habits out for a snapshot (snapshotLock),
+// can hold them all off. Readers never lock: getAllHabits() and the other lookups read the
+// current View, which is internally consistent and never changes once published.
+//
+// batch(ops -> ...) applies many changes all-or-nothing to a private draft View (changed habits
+// are copied first) and publishes it when it commits, with one metrics publish, one journal
+// append and its events delivered together; the optional writer queue (enableWriterQueue) uses
+// the same batching for submitted commands.
+//
+// query(HabitQuery) answers category / priority / status / schedule / done-today filters from
+// bitmap indexes (HabitIndex), already sorted, without scanning the habits. HabitIndex is the
+// one place OrderKey order is kept: the GUI's getActiveTodayOrdered() / getInactiveTodayOrdered()
+// are queries over it too.
 public class HabitService {
-    private static HabitService instance;
-    private static final Map<UUID, Habit> allHabits    = new LinkedHashMap<>();
-    private static final Map<UUID, Habit> activeHabits = new LinkedHashMap<>();
+    private final Persistence persistence;
+
+    // ----- published view (replaced under structureLock, read lock-free) -----
+    private final Object structureLock = new Object();
+    private volatile View view = View.EMPTY;
+    private long nextSeq; // creation order shared by the HabitMaps (structureLock)
+
+    // bitmap indexes over category / priority / status / schedule / done today, for query(...)
+    private final HabitIndex index = new HabitIndex();
+
+    // per-day completion / schedule counts for range analytics (the dashboard, the recap card)
+    private final SummaryService summary = new SummaryService();
+
+    // the split the GUI renders from; "today" is re-read on every call
+    private static final HabitQuery ACTIVE_TODAY     = HabitQuery.active().and(HabitQuery.scheduledToday());
+    private static final HabitQuery NOT_ACTIVE_TODAY = ACTIVE_TODAY.not();
+
+    // ----- batches / writer queue -----
+    // batches and snapshot copies hold the write side; every other change holds the read side
+    private final ReentrantReadWriteLock batchGate = new ReentrantReadWriteLock();
+    private volatile Thread batchThread; // thread running a batch, if any
+    private View draft;                  // that batch's View, published when it commits (batch thread only)
+    private Batch batchScope;            // innermost scope of that batch (batch thread only)
+    private int batchDepth;              // guarded by structureLock
+    // ids the batch changed -> completion days it changed, for the index and summary at commit
+    private final Map<UUID, Set<Long>> batchTouched = new HashMap<>();
+    private boolean metricsPending;      // guarded by metricsLock
+    private volatile HabitWriter writer;
+
+    // ----- change events -----
+    private final SubmissionPublisher<HabitEvent> eventPublisher = new SubmissionPublisher<>();
+    private final List<HabitEvent> batchEvents = new ArrayList<>(); // held until the batch commits
+
+    // per-habit locks, striped by id
+    private static final int      LOCK_STRIPES = 16;
+    private final Object[] habitLocks = new Object[LOCK_STRIPES];
+    {
+        for (int i = 0; i < LOCK_STRIPES; i++) habitLocks[i] = new Object();
+    }
 
     // Dashboard metric properties (bind from UI)
-    private static final IntegerProperty totalDisplayed     = new SimpleIntegerProperty(0);
-    private static final IntegerProperty completedDisplayed = new SimpleIntegerProperty(0);
-    private static final DoubleProperty  percentDisplayed   = new SimpleDoubleProperty(0.0);
+    private final IntegerProperty totalDisplayed     = new SimpleIntegerProperty(0);
+    private final IntegerProperty completedDisplayed = new SimpleIntegerProperty(0);
+    private final DoubleProperty  percentDisplayed   = new SimpleDoubleProperty(0.0);
 
-    private HabitService() {}
+    // Running dashboard counts, kept in step by deltas; valid for metricsDay only (metricsLock)
+    private final Object metricsLock = new Object();
+    private int  scheduledToday = 0;
+    private int  completedToday = 0;
+    private long metricsDay     = Long.MIN_VALUE;
 
-    public static HabitService getInstance() {
-        if (instance != null) return instance;
-        instance = new HabitService();
-        return instance;
+    // -Dhabit.debugMetrics=true cross-checks every delta against a full scan
+    private static final boolean DEBUG_METRICS = Boolean.getBoolean("habit.debugMetrics");
+
+    // set once Platform.runLater has refused (toolkit never started in this process)
+    private static volatile boolean noFxToolkit;
+
+    /** A service whose data lives in dataDir (see Persistence for the files kept there). */
+    public HabitService(Path dataDir) {
+        persistence = new Persistence(this, dataDir);
     }
 
-    public static Map<UUID, Habit> getAllHabits()    { return allHabits; }
-    public static Map<UUID, Habit> getActiveHabits() { return activeHabits; }
+    private static final class Holder {
+        static final HabitService INSTANCE = new HabitService(Persistence.defaultDirectory());
+    }
 
-    // allow bootstrap to trigger a metrics recompute after loading
-    public static void forceRecompute() { recomputeDashboardMetrics(); }
-
-    // Recompute totals for dashboard (ONLY habits scheduled for TODAY)
-    private static void recomputeDashboardMetrics() {
-        LocalDate today = LocalDate.now();
-        DayOfWeek dow   = today.getDayOfWeek();
-
-        int total = 0;
-        int completedToday = 0;
-
-        for (Habit h : activeHabits.values()) {
-            // count only habits whose schedule includes TODAY
-            if (h.getSchedule() != null && h.getSchedule().contains(dow)) {
-                total++;
-                if (h.isCompletedOn(today)) {
-                    completedToday++;
+    /** The desktop user's service, stored in the home directory. */
+    public static HabitService getInstance() { return Holder.INSTANCE; }
+
+    public Persistence getPersistence() { return persistence; }
+
+    // Read-only snapshots of the current View (creation order); they never change once returned
+    public Map<UUID, Habit> getAllHabits()    { return current().all; }
+    public Map<UUID, Habit> getActiveHabits() { return current().active; }
+
+    /** Active habits scheduled on the given day (read-only snapshot, creation order). */
+    public Map<UUID, Habit> getActiveHabitsOn(DayOfWeek day) {
+        return current().byDay[day.ordinal()];
+    }
+
+    // the View this thread works on: a batch sees its own draft, everyone else the published one
+    private View current() {
+        return Thread.currentThread() == batchThread ? draft : view;
+    }
+
+    // caller holds structureLock; inside a batch this only changes its draft
+    private void install(View v) {
+        if (Thread.currentThread() == batchThread) {
+            draft = v;
+        } else {
+            view = v;
+        }
+    }
+
+    private Object lockFor(UUID id) {
+        return habitLocks[(id.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    private Habit find(UUID id) {
+        return current().all.get(id);
+    }
+
+    // ----- writer queue -----
+
+    /** Route submit(...) through a single writer thread, applying up to maxBatch commands at once. */
+    public synchronized void enableWriterQueue(int maxBatch) {
+        if (writer == null) writer = new HabitWriter(this, maxBatch);
+    }
+
+    /** Apply everything still queued and stop the writer; submit(...) then runs inline again. */
+    public synchronized void stopWriterQueue() {
+        HabitWriter w = writer;
+        writer = null;
+        if (w != null) w.close();
+    }
+
+    /** Stop the writer queue, write anything pending and end the event stream. */
+    public void close() {
+        stopWriterQueue();
+        persistence.flush();
+        eventPublisher.close();
+    }
+
+    // per habit: its entries in the id / active / weekday maps, name and order indexes, bitmaps
+    private static final long HABIT_INDEX_BYTES = 1000;
+
+    /** Rough heap footprint of this service and its habits (TenantRegistry's memory budget). */
+    public long estimatedBytes() {
+        long bytes = 4096 + summary.estimatedBytes(); // + locks, empty indexes, properties, publisher
+        for (Habit h : view.all.values()) bytes += h.estimatedBytes() + HABIT_INDEX_BYTES;
+        return bytes;
+    }
+
+    /**
+     * Run a mutation (any of the methods below) as a command. With the writer queue enabled it
+     * is queued and applied by the writer thread; otherwise it runs now, on the calling thread.
+     * The future fails with whatever the command threw (e.g. HabitNotFoundException).
+     */
+    public <T> CompletableFuture<T> submit(HabitCommand<T> command) {
+        HabitWriter w = writer;
+        if (w != null) {
+            CompletableFuture<T> queued = w.submit(command);
+            if (queued != null) return queued;
+        }
+        try {
+            return CompletableFuture.completedFuture(command.execute());
+        } catch (Throwable t) {
+            return CompletableFuture.failedFuture(t);
+        }
+    }
+
+    /**
+     * Stream of HabitEvents describing each change, delivered asynchronously (never on the
+     * mutating thread) and in order. GUI subscribers should hop to the FX thread themselves.
+     */
+    public Flow.Publisher<HabitEvent> events() { return eventPublisher; }
+
+    // publish now, or with the rest of the batch when called from one
+    private void emit(HabitEvent e) {
+        if (Thread.currentThread() == batchThread) {
+            batchEvents.add(e); // batch thread holds structureLock
+            return;
+        }
+        eventPublisher.submit(e);
+    }
+
+    /**
+     * Apply several changes as one unit: their events arrive together once it commits, the
+     * dashboard properties fire once and Persistence gets a single write. Other writers wait for
+     * it. It works on a draft (habits it changes are copied first), so readers see none of its
+     * changes until it commits, and then all of them at once; query(...), count(...) and the
+     * summary catch up at the commit too, so inside the batch they still answer for the state
+     * before it. If work throws, the draft is dropped, nothing is persisted and the exception
+     * is rethrown.
+     */
+    public void batch(BatchWork work) throws HabitNotFoundException, AlreadyNotActiveException,
+            HabitAlreadyCompleteException, HabitNotActiveTodayException {
+        Batch ops = new Batch();
+        try {
+            applyBatch(() -> {
+                try {
+                    runScoped(ops, () -> {
+                        work.apply(ops);
+                        return null;
+                    });
+                } finally {
+                    ops.closed = true;
                 }
+            });
+        } catch (HabitNotFoundException | AlreadyNotActiveException | HabitAlreadyCompleteException
+                 | HabitNotActiveTodayException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e); // work declares nothing else
+        }
+    }
+
+    // Run one command of the current batch in its own scope (HabitWriter, per command)
+    <T> T runScoped(HabitCommand<T> work) throws Exception {
+        return runScoped(new Batch(), work);
+    }
+
+    /*
+     * Run work inside the current batch as scope. If it throws, the draft goes back to what it
+     * was when the scope opened, its journal records and events are dropped and the exception
+     * rethrown; if it succeeds, an enclosing scope takes over the habits it copied.
+     * Caller is inside applyBatch.
+     */
+    private <T> T runScoped(Batch scope, HabitCommand<T> work) throws Exception {
+        Batch outer = batchScope;
+        batchScope = scope;
+        scope.start = draft;
+        int mark = persistence.batchMark();
+        int eventMark = batchEvents.size();
+        try {
+            T result = work.execute();
+            if (outer != null) outer.copies.addAll(scope.copies);
+            return result;
+        } catch (Exception e) {
+            draft = scope.start; // copies made since are dropped with it
+            persistence.discardBatch(mark);
+            batchEvents.subList(eventMark, batchEvents.size()).clear();
+            throw e;
+        } finally {
+            batchScope = outer;
+        }
+    }
+
+    // On the batch thread, note id as changed and return true: the index and the summary are
+    // brought up to date from the committed View instead (see finishBatch)
+    private boolean deferred(UUID id) {
+        if (Thread.currentThread() != batchThread) return false;
+        batchTouched.computeIfAbsent(id, k -> new HashSet<>());
+        return true;
+    }
+
+    // deferred(id), also noting that its completion on day changed
+    private boolean deferred(UUID id, long day) {
+        if (!deferred(id)) return false;
+        batchTouched.get(id).add(day);
+        return true;
+    }
+
+    // h, ready to change: on the batch thread a copy of it that only the innermost scope has
+    // touched, put in the draft in its place, so nothing published changes before the commit
+    private Habit writable(Habit h) {
+        if (!deferred(h.getId())) return h;
+        Batch scope = batchScope;
+        if (scope != null && !scope.copies.add(h.getId())) return h; // this scope's copy already
+        Habit copy = h.copy();
+        draft = draft.replacing(h, copy);
+        return copy;
+    }
+
+    /** Body of a batch(...) call; it can throw what the Batch operations throw. */
+    @FunctionalInterface
+    public interface BatchWork {
+        void apply(Batch ops) throws HabitNotFoundException, AlreadyNotActiveException,
+                HabitAlreadyCompleteException, HabitNotActiveTodayException;
+    }
+
+    /**
+     * The lock that holds off every change, for Persistence to copy the habits out as of one
+     * instant; null on a thread that is in the middle of a change itself (a synchronous save),
+     * which can't wait for itself and whose own locks already hold its change together.
+     */
+    Lock snapshotLock() {
+        if (batchGate.isWriteLockedByCurrentThread() || batchGate.getReadHoldCount() > 0) return null;
+        return batchGate.writeLock();
+    }
+
+    @FunctionalInterface
+    interface BatchBody<X extends Exception> {
+        void run() throws X;
+    }
+
+    // Run body as one batch on this thread (reentrant; HabitWriter runs each drained batch here)
+    <X extends Exception> void applyBatch(BatchBody<X> body) throws X {
+        batchGate.writeLock().lock();
+        try {
+            synchronized (structureLock) {
+                if (batchDepth++ == 0) {
+                    draft = view;
+                    batchThread = Thread.currentThread();
+                    persistence.beginBatch();
+                }
+                try {
+                    body.run();
+                } finally {
+                    if (--batchDepth == 0) finishBatch();
+                }
+            }
+        } finally {
+            batchGate.writeLock().unlock();
+        }
+    }
+
+    // caller holds structureLock; still under it so batches reach the journal in order
+    private void finishBatch() {
+        View committed = draft;
+        view = committed; // everything the batch did appears at once
+        draft = null;
+        batchThread = null;
+        for (Map.Entry<UUID, Set<Long>> e : batchTouched.entrySet()) {
+            Habit h = committed.all.get(e.getKey());
+            if (h == null) {
+                index.remove(e.getKey());
+                summary.remove(e.getKey());
+            } else {
+                index.put(h);
+                summary.replace(h, e.getValue());
+            }
+        }
+        batchTouched.clear();
+        synchronized (metricsLock) {
+            if (metricsPending) {
+                metricsPending = false;
+                recomputeDashboardMetrics();
+            }
+        }
+        persistence.endBatch();
+        for (HabitEvent e : batchEvents) eventPublisher.submit(e);
+        batchEvents.clear();
+    }
+
+    // ----- published view -----
+
+    /**
+     * Immutable snapshot of the habit maps, the day index and the name index. A change derives
+     * the next View from the current one, touching only the changed habit's entries, and swaps it
+     * in under structureLock (or, in a batch, makes it the draft); a reader takes the current one
+     * and sees one consistent state.
+     */
+    private static final class View {
+        static final View EMPTY = new View(HabitMap.EMPTY, HabitMap.EMPTY, emptyDays(), PersistentTree.empty());
+
+        final HabitMap all;
+        final HabitMap active;
+        final HabitMap[] byDay;                          // by DayOfWeek ordinal: ACTIVE habits scheduled that day
+        final PersistentTree<String, List<UUID>> names;  // normalized name -> ids with that name, oldest first
+
+        private View(HabitMap all, HabitMap active, HabitMap[] byDay, PersistentTree<String, List<UUID>> names) {
+            this.all = all;
+            this.active = active;
+            this.byDay = byDay;
+            this.names = names;
+        }
+
+        private static HabitMap[] emptyDays() {
+            HabitMap[] days = new HabitMap[7];
+            Arrays.fill(days, HabitMap.EMPTY);
+            return days;
+        }
+
+        // h at position seq, filed by its current status, schedule and name
+        View adding(long seq, Habit h) {
+            HabitMap a = all.with(seq, h);
+            HabitMap act = active;
+            HabitMap[] days = byDay;
+            if (h.getActiveStatus() == Status.ACTIVE) {
+                act = act.with(seq, h);
+                days = filed(days, seq, h);
+            }
+            return new View(a, act, days, withName(names, a, h.getId(), h.getName()));
+        }
+
+        View removing(Habit h) {
+            UUID id = h.getId();
+            return new View(all.without(id), active.without(id), unfiled(byDay, id), withoutName(names, id, h.getName()));
+        }
+
+        View deactivating(Habit h) {
+            return new View(all, active.without(h.getId()), unfiled(byDay, h.getId()), names);
+        }
+
+        View renaming(UUID id, String from, String to) {
+            return new View(all, active, byDay, withName(withoutName(names, id, from), all, id, to));
+        }
+
+        // copy in old's place wherever old is filed (same position, same name)
+        View replacing(Habit old, Habit copy) {
+            UUID id = old.getId();
+            long seq = all.seqOf(id);
+            HabitMap act = active.containsKey(id) ? active.with(seq, copy) : active;
+            HabitMap[] days = byDay.clone();
+            for (int d = 0; d < days.length; d++) {
+                if (days[d].containsKey(id)) days[d] = days[d].with(seq, copy);
             }
+            return new View(all.with(seq, copy), act, days, names);
+        }
+
+        // h's schedule changed: file it under its new days
+        View rescheduling(Habit h) {
+            HabitMap[] days = unfiled(byDay, h.getId());
+            if (h.getActiveStatus() == Status.ACTIVE) days = filed(days, all.seqOf(h.getId()), h);
+            return new View(all, active, days, names);
         }
 
-        totalDisplayed.set(total);
-        completedDisplayed.set(completedToday);
+        private static HabitMap[] filed(HabitMap[] days, long seq, Habit h) {
+            if (h.getSchedule() == null) return days;
+            HabitMap[] next = days.clone();
+            for (DayOfWeek d : h.getSchedule()) next[d.ordinal()] = next[d.ordinal()].with(seq, h);
+            return next;
+        }
+
+        private static HabitMap[] unfiled(HabitMap[] days, UUID id) {
+            HabitMap[] next = days.clone();
+            for (int d = 0; d < next.length; d++) next[d] = next[d].without(id);
+            return next;
+        }
+
+        private static PersistentTree<String, List<UUID>> withName(
+                PersistentTree<String, List<UUID>> names, HabitMap all, UUID id, String name) {
+            String key = normalizeName(name);
+            List<UUID> ids = names.get(key);
+            if (ids != null && ids.contains(id)) return names;
+            List<UUID> next = new ArrayList<>(ids == null ? List.of() : ids);
+            long seq = all.seqOf(id);
+            int at = next.size();
+            while (at > 0 && all.seqOf(next.get(at - 1)) > seq) at--; // oldest first
+            next.add(at, id);
+            return names.put(key, List.copyOf(next));
+        }
+
+        private static PersistentTree<String, List<UUID>> withoutName(
+                PersistentTree<String, List<UUID>> names, UUID id, String name) {
+            String key = normalizeName(name);
+            List<UUID> ids = names.get(key);
+            if (ids == null || !ids.contains(id)) return names;
+            if (ids.size() == 1) return names.remove(key);
+            List<UUID> next = new ArrayList<>(ids);
+            next.remove(id);
+            return names.put(key, List.copyOf(next));
+        }
+    }
 
-        // On a rest day (no scheduled habits) show 100% to avoid a sad 0%
-        percentDisplayed.set(total == 0 ? 1.0 : (double) completedToday / (double) total);
+    static String normalizeName(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** Case-insensitive exact name lookup; with duplicate names the oldest habit wins. */
+    public UUID findIdByName(String name) {
+        List<UUID> ids = current().names.get(normalizeName(name));
+        return ids == null ? null : ids.get(0);
+    }
+
+    /** Habits whose name starts with prefix (case-insensitive), ordered by name, then age. */
+    public List<Habit> findByNamePrefix(String prefix) {
+        View v = current();
+        String from = normalizeName(prefix);
+        List<Habit> out = new ArrayList<>();
+        for (Iterator<Map.Entry<String, List<UUID>>> it = v.names.from(from); it.hasNext(); ) {
+            Map.Entry<String, List<UUID>> e = it.next();
+            if (!e.getKey().startsWith(from)) break;
+            for (UUID id : e.getValue()) out.add(v.all.get(id));
+        }
+        return out;
+    }
+
+    /** Habits matching q, in OrderKey order (priority HIGH first, then name, then id). */
+    public List<Habit> query(HabitQuery q) {
+        return index.select(q);
+    }
+
+    /** Number of habits matching q. */
+    public int count(HabitQuery q) {
+        return index.count(q);
+    }
+
+    /** Completion analytics over any date range, kept up to date with every change. */
+    public SummaryService getSummary() {
+        return summary;
+    }
+
+    // ----- ordered views -----
+
+    /**
+     * Sort position shared by the ordered views and query(...): priority rank (HIGH first),
+     * then the normalized name, then id. Computed once per change, so comparing two keys
+     * allocates nothing.
+     */
+    public record OrderKey(int rank, String name, UUID id) implements Comparable<OrderKey> {
+        static OrderKey of(Habit h) {
+            Priority p = h.getPriority();
+            return new OrderKey(p == null ? Priority.LOW.ordinal() : p.ordinal(), normalizeName(h.getName()), h.getId());
+        }
+
+        @Override
+        public int compareTo(OrderKey o) {
+            int c = Integer.compare(rank, o.rank);
+            if (c == 0) c = name.compareTo(o.name);
+            return c != 0 ? c : id.compareTo(o.id);
+        }
+    }
+
+    /** Active habits scheduled today, in OrderKey order (a snapshot, read from the query index). */
+    public List<Habit> getActiveTodayOrdered() {
+        return index.select(ACTIVE_TODAY);
+    }
+
+    /** Every other habit (deactivated, or not scheduled today), in OrderKey order (a snapshot). */
+    public List<Habit> getInactiveTodayOrdered() {
+        return index.select(NOT_ACTIVE_TODAY);
+    }
+
+    /** Current sort position of a habit, or null if there is no such habit. */
+    public OrderKey orderKeyOf(UUID id) {
+        return index.keyOf(id);
+    }
+
+    // allow bootstrap to trigger a metrics recompute after loading
+    public void forceRecompute() {
+        batchGate.readLock().lock();
+        try {
+            synchronized (structureLock) {
+                summary.rebuild(view.all.values()); // completions may have been set directly on the habits
+            }
+        } finally {
+            batchGate.readLock().unlock();
+        }
+        recomputeDashboardMetrics();
+        emit(new HabitEvent.HabitsReloaded());
+    }
+
+    // Recompute totals for dashboard (ONLY habits scheduled for TODAY) - bootstrap and day rollover
+    private void recomputeDashboardMetrics() {
+        synchronized (metricsLock) {
+            if (Thread.currentThread() == batchThread) {
+                metricsPending = true; // the summary catches up at the commit; recompute then
+                return;
+            }
+            LocalDate today = LocalDate.now();
+            scheduledToday = summary.scheduledCount(today, today);
+            completedToday = summary.completedCount(today, today);
+            metricsDay     = today.toEpochDay();
+            publishDashboardMetrics();
+        }
+    }
+
+    // Full scan: {scheduled today, completed today} over active habits (DEBUG_METRICS cross-check)
+    private int[] scanDashboardMetrics(LocalDate today) {
+        // the day index already holds exactly the active habits scheduled TODAY
+        Map<UUID, Habit> scheduled = view.byDay[today.getDayOfWeek().ordinal()];
+        int completed = 0;
+        for (Habit h : scheduled.values()) {
+            if (h.isCompletedOn(today)) completed++;
+        }
+        return new int[] { scheduled.size(), completed };
+    }
+
+    // Apply a change in the running counts; falls back to a full recompute after midnight
+    private void adjustDashboardMetrics(int dScheduled, int dCompleted) {
+        adjustDashboardMetrics(LocalDate.now(), dScheduled, dCompleted);
+    }
+
+    // the same, for a change the caller made as of today
+    private void adjustDashboardMetrics(LocalDate today, int dScheduled, int dCompleted) {
+        synchronized (metricsLock) {
+            if (Thread.currentThread() == batchThread) {
+                metricsPending = true; // recomputed once, at the commit
+                return;
+            }
+            if (metricsDay != today.toEpochDay()) {
+                recomputeDashboardMetrics();
+                return;
+            }
+            if (dScheduled == 0 && dCompleted == 0) return;
+
+            scheduledToday += dScheduled;
+            completedToday += dCompleted;
+            checkAndPublishMetrics(today);
+        }
+    }
+
+    // caller holds metricsLock
+    private void checkAndPublishMetrics(LocalDate today) {
+        if (DEBUG_METRICS) {
+            // only exact when no other thread is mid-mutation
+            int[] expected = scanDashboardMetrics(today);
+            if (expected[0] != scheduledToday || expected[1] != completedToday) {
+                System.err.println("HabitService: dashboard counts drifted (delta "
+                        + scheduledToday + "/" + completedToday + ", scan "
+                        + expected[0] + "/" + expected[1] + ")");
+                scheduledToday = expected[0];
+                completedToday = expected[1];
+            }
+        }
+        publishDashboardMetrics();
+    }
+
+    // caller holds metricsLock; properties are only touched on the FX thread once it runs
+    private void publishDashboardMetrics() {
+        int total = scheduledToday;
+        int done  = completedToday;
+        Runnable apply = () -> {
+            totalDisplayed.set(total);
+            completedDisplayed.set(done);
+
+            // On a rest day (no scheduled habits) show 100% to avoid a sad 0%
+            percentDisplayed.set(total == 0 ? 1.0 : (double) done / (double) total);
+        };
+        if (noFxToolkit || Platform.isFxApplicationThread()) {
+            apply.run();
+            return;
+        }
+        try {
+            Platform.runLater(apply);
+        } catch (IllegalStateException toolkitNotRunning) {
+            noFxToolkit = true; // console app / server tenants: no FX thread to hop to
+            apply.run();
+        }
+    }
+
+    // Does this habit count toward today's dashboard (active + scheduled today)?
+    private boolean countsToday(Habit h) {
+        return countsToday(h, LocalDate.now());
+    }
+
+    private boolean countsToday(Habit h, LocalDate today) {
+        return h.getActiveStatus() == Status.ACTIVE
+                && h.getSchedule() != null
+                && h.getSchedule().contains(today.getDayOfWeek());
+    }
+
+    private int completedTodayDelta(Habit h) {
+        return h.isCompletedToday() ? 1 : 0;
     }
 
     // Expose properties to UI
-    public static ReadOnlyIntegerProperty totalDisplayedProperty()     { return totalDisplayed; }
-    public static ReadOnlyIntegerProperty completedDisplayedProperty() { return completedDisplayed; }
-    public static ReadOnlyDoubleProperty  percentDisplayedProperty()   { return percentDisplayed; }
+    public ReadOnlyIntegerProperty totalDisplayedProperty()     { return totalDisplayed; }
+    public ReadOnlyIntegerProperty completedDisplayedProperty() { return completedDisplayed; }
+    public ReadOnlyDoubleProperty  percentDisplayedProperty()   { return percentDisplayed; }
 
-    // used ONLY by Persistence.bootstrapLoad() to hydrate existing ids/status
-    public static void createHabitFromPersistence(UUID id,
+    // hydrate one existing id/status; prefer hydrate(...) for bulk loads
+    public void createHabitFromPersistence(UUID id,
                                                   String name,
                                                   Priority priority,
                                                   Category category,
                                                   EnumSet<DayOfWeek> schedule,
                                                   Status status) {
         Habit habit = new Habit(id, name, priority, category, schedule);
-        allHabits.put(id, habit);
-        if (status == Status.ACTIVE) {
-            activeHabits.put(id, habit);
-        } else {
-            habit.setActiveStatus(Status.INACTIVE);
+        if (status != Status.ACTIVE) habit.setActiveStatus(Status.INACTIVE);
+        batchGate.readLock().lock();
+        try {
+            synchronized (structureLock) {
+                install(adopt(current(), habit));
+                summary.put(habit);
+            }
+        } finally {
+            batchGate.readLock().unlock();
+        }
+        // caller applies completions, then forceRecompute()
+    }
+
+    /**
+     * Bulk load: adopt habits built by a loader (ids already assigned, completions already set)
+     * in one pass, replacing any habit with the same id, then recompute the dashboard once.
+     */
+    public void hydrate(Collection<Habit> habits) {
+        hydrate(habits, Map.of());
+    }
+
+    // hydrate(habits), reusing the closed rollup buckets saved with the snapshot they came from
+    void hydrate(Collection<Habit> habits, Map<UUID, SummaryService.ClosedBuckets> closed) {
+        batchGate.readLock().lock();
+        try {
+            synchronized (structureLock) {
+                View v = current();
+                for (Habit habit : habits) v = adopt(v, habit);
+                install(v); // the whole load appears at once
+                summary.putAll(habits, closed); // in parallel for large loads
+            }
+        } finally {
+            batchGate.readLock().unlock();
         }
         recomputeDashboardMetrics();
+        emit(new HabitEvent.HabitsReloaded());
+    }
+
+    // v with habit in place of any habit under its id (keeping that one's position); caller holds
+    // structureLock, publishes the result and adds the habit to the summary afterwards
+    private View adopt(View v, Habit habit) {
+        Habit replaced = v.all.get(habit.getId());
+        long seq = replaced != null ? v.all.seqOf(habit.getId()) : nextSeq++;
+        if (replaced != null) v = v.removing(replaced);
+        index.put(habit);
+        return v.adding(seq, habit);
     }
 
-    // Create
-    public static void createHabit(String name, Priority priority, Category category, EnumSet<DayOfWeek> schedule) {
+    // Create; returns the new habit's id
+    public UUID createHabit(String name, Priority priority, Category category, EnumSet<DayOfWeek> schedule) {
         UUID id = UUID.randomUUID();
         Habit habit = new Habit(id, name, priority, category, schedule);
-        allHabits.put(id, habit);
-        activeHabits.put(id, habit);
-        recomputeDashboardMetrics();
-        Persistence.saveSnapshot();
+        batchGate.readLock().lock();
+        try {
+            synchronized (structureLock) {
+                if (!deferred(id)) {
+                    index.put(habit);
+                    summary.put(habit);
+                }
+                // journal before publishing, so nobody can journal a change to it ahead of the create
+                persistence.journalCreate(habit);
+                install(current().adding(nextSeq++, habit));
+                adjustDashboardMetrics(countsToday(habit) ? 1 : 0, 0);
+                emit(new HabitEvent.HabitCreated(habit));
+            }
+        } finally {
+            batchGate.readLock().unlock();
+        }
+        return id;
     }
 
     // Remove
-    public static void removeHabit(UUID habitID) throws HabitNotFoundException {
-        if (!allHabits.containsKey(habitID)) throw new HabitNotFoundException();
+    public void removeHabit(UUID habitID) throws HabitNotFoundException {
+        batchGate.readLock().lock();
+        try {
+            synchronized (structureLock) {
+                Habit removedHabit = current().all.get(habitID);
+                if (removedHabit == null) throw new HabitNotFoundException();
 
-        Habit removedHabit = allHabits.get(habitID);
-        if (removedHabit.getActiveStatus() == Status.ACTIVE) {
-            if (!activeHabits.containsKey(habitID)) throw new HabitNotFoundException();
-            activeHabits.remove(habitID);
+                synchronized (lockFor(habitID)) {
+                    boolean counted = countsToday(removedHabit);
+                    if (removedHabit.getActiveStatus() == Status.ACTIVE && !current().active.containsKey(habitID)) {
+                        throw new HabitNotFoundException();
+                    }
+                    install(current().removing(removedHabit));
+                    if (!deferred(habitID)) {
+                        index.remove(habitID);
+                        summary.remove(habitID);
+                    }
+                    if (counted) adjustDashboardMetrics(-1, -completedTodayDelta(removedHabit));
+                    persistence.journalRemove(habitID);
+                    emit(new HabitEvent.HabitRemoved(habitID));
+                }
+            }
+        } finally {
+            batchGate.readLock().unlock();
         }
-        allHabits.remove(habitID);
-        recomputeDashboardMetrics();
-        Persistence.saveSnapshot();
     }
 
     // Deactivate
-    public static void deactivateHabit(UUID habitID) throws HabitNotFoundException, AlreadyNotActiveException {
-        if (!allHabits.containsKey(habitID)) throw new HabitNotFoundException();
-
-        Habit deactivatedHabit = allHabits.get(habitID);
-        if (deactivatedHabit.getActiveStatus() == Status.ACTIVE) {
-            deactivatedHabit.setActiveStatus(Status.INACTIVE);
-            activeHabits.remove(habitID);
-            recomputeDashboardMetrics();
-            Persistence.saveSnapshot();
-        } else {
-            throw new AlreadyNotActiveException();
+    public void deactivateHabit(UUID habitID) throws HabitNotFoundException, AlreadyNotActiveException {
+        batchGate.readLock().lock();
+        try {
+            synchronized (structureLock) {
+                Habit deactivatedHabit = current().all.get(habitID);
+                if (deactivatedHabit == null) throw new HabitNotFoundException();
+
+                synchronized (lockFor(habitID)) {
+                    if (deactivatedHabit.getActiveStatus() != Status.ACTIVE) throw new AlreadyNotActiveException();
+
+                    boolean counted = countsToday(deactivatedHabit);
+                    deactivatedHabit = writable(deactivatedHabit);
+                    deactivatedHabit.setActiveStatus(Status.INACTIVE);
+                    install(current().deactivating(deactivatedHabit));
+                    if (!deferred(habitID)) {
+                        index.update(deactivatedHabit);
+                        summary.refresh(deactivatedHabit);
+                    }
+                    if (counted) adjustDashboardMetrics(-1, -completedTodayDelta(deactivatedHabit));
+                    persistence.journalDeactivate(habitID);
+                    emit(new HabitEvent.HabitUpdated(deactivatedHabit));
+                }
+            }
+        } finally {
+            batchGate.readLock().unlock();
         }
     }
 
-    // Find by name (kept as-is)
-    public static UUID validIdExist(UUID searchId, String habitName) {
-        for (UUID id : allHabits.keySet()) {
-            if (allHabits.get(id) != null) {
-                String name = allHabits.get(id).getName().toLowerCase();
-                if (name.equals(habitName)) searchId = id;
+    // Find by name (case-insensitive, via the name index); searchId when nothing matches
+    public UUID validIdExist(UUID searchId, String habitName) {
+        UUID found = findIdByName(habitName);
+        return found != null ? found : searchId;
+    }
+
+    public void changeName(UUID searchId, String name) {
+        batchGate.readLock().lock();
+        try {
+            synchronized (structureLock) {
+                Habit h = current().all.get(searchId);
+                if (h == null) return;
+                synchronized (lockFor(searchId)) {
+                    String old = h.getName();
+                    h = writable(h);
+                    h.setName(name);
+                    install(current().renaming(searchId, old, name));
+                    if (!deferred(searchId)) index.update(h);
+                    persistence.journalRename(searchId, name);
+                    emit(new HabitEvent.HabitUpdated(h));
+                }
             }
+        } finally {
+            batchGate.readLock().unlock();
         }
-        return searchId;
     }
 
-    public static void changeName(UUID searchId, String name) {
-        Habit h = allHabits.get(searchId);
-        if (h != null) h.setName(name);
-        recomputeDashboardMetrics();
-        Persistence.saveSnapshot();
+    public void changePriority(UUID searchId, Priority priority) {
+        batchGate.readLock().lock();
+        try {
+            Habit h = find(searchId);
+            if (h == null) return;
+            synchronized (lockFor(searchId)) {
+                h = writable(h);
+                h.setPriority(priority);
+                if (!deferred(searchId)) index.update(h);
+                persistence.journalPriority(searchId, priority);
+                emit(new HabitEvent.HabitUpdated(h));
+            }
+        } finally {
+            batchGate.readLock().unlock();
+        }
     }
 
-    public static void changePriority(UUID searchId, Priority priority) {
-        Habit h = allHabits.get(searchId);
-        if (h != null) h.setPriority(priority);
-        recomputeDashboardMetrics();
-        Persistence.saveSnapshot();
+    public void changeCategory(UUID searchId, Category category) {
+        batchGate.readLock().lock();
+        try {
+            Habit h = find(searchId);
+            if (h == null) return;
+            synchronized (lockFor(searchId)) {
+                h = writable(h);
+                h.setCategory(category);
+                if (!deferred(searchId)) {
+                    index.update(h);
+                    summary.refresh(h);
+                }
+                persistence.journalCategory(searchId, category);
+                emit(new HabitEvent.HabitUpdated(h));
+            }
+        } finally {
+            batchGate.readLock().unlock();
+        }
     }
 
-    public static void changeCategory(UUID searchId, Category category) {
-        Habit h = allHabits.get(searchId);
-        if (h != null) h.setCategory(category);
-        recomputeDashboardMetrics();
-        Persistence.saveSnapshot();
+    public void changeSchedule(UUID searchId, EnumSet<DayOfWeek> schedule) {
+        batchGate.readLock().lock();
+        try {
+            synchronized (structureLock) {
+                Habit h = current().all.get(searchId);
+                if (h == null) return;
+                synchronized (lockFor(searchId)) {
+                    boolean wasCounted = countsToday(h);
+                    int done = completedTodayDelta(h);
+
+                    h = writable(h);
+                    h.setSchedule(schedule);
+                    install(current().rescheduling(h));
+                    if (!deferred(searchId)) {
+                        index.update(h);
+                        summary.refresh(h);
+                    }
+
+                    boolean nowCounted = countsToday(h);
+                    if (wasCounted != nowCounted) {
+                        int sign = nowCounted ? 1 : -1;
+                        adjustDashboardMetrics(sign, sign * done);
+                    }
+                    persistence.journalSchedule(searchId, schedule);
+                    emit(new HabitEvent.ScheduleChanged(h));
+                }
+            }
+        } finally {
+            batchGate.readLock().unlock();
+        }
     }
 
     // Mark completed for TODAY (respect schedule)
-    public static void markHabitCompletedToday(UUID habitId)
+    public void markHabitCompletedToday(UUID habitId)
             throws HabitNotFoundException, HabitAlreadyCompleteException, HabitNotActiveTodayException {
-        Habit habit = allHabits.get(habitId);
-        if (habit == null) throw new HabitNotFoundException();
+        batchGate.readLock().lock();
+        try {
+            Habit habit = find(habitId);
+            if (habit == null) throw new HabitNotFoundException();
 
-        DayOfWeek today = LocalDate.now().getDayOfWeek();
-        if (!habit.getSchedule().contains(today)) throw new HabitNotActiveTodayException();
+            synchronized (lockFor(habitId)) {
+                // one reading of the clock, so the check, the bit, the journal and the event agree
+                LocalDate today = LocalDate.now();
+                long day = today.toEpochDay();
+                EnumSet<DayOfWeek> schedule = habit.getSchedule();
+                if (schedule == null || !schedule.contains(today.getDayOfWeek())) throw new HabitNotActiveTodayException();
+                if (habit.isCompletedOnEpochDay(day)) throw new HabitAlreadyCompleteException();
 
-        habit.markCompletedToday();
-        recomputeDashboardMetrics();
-        Persistence.saveSnapshot();
+                habit = writable(habit);
+                habit.setCompletedOnEpochDay(day, true);
+                if (!deferred(habitId, day)) {
+                    index.update(habit);
+                    summary.completionChanged(habit, day);
+                }
+                if (habit.getActiveStatus() == Status.ACTIVE) adjustDashboardMetrics(today, 0, 1);
+                persistence.journalCompletion(habitId, today, true);
+                emit(new HabitEvent.CompletionChanged(habit, today));
+            }
+        } finally {
+            batchGate.readLock().unlock();
+        }
     }
 
     // Unmark today's completion
-    public static void unmarkHabitCompletedToday(UUID habitId) throws HabitNotFoundException {
-        Habit habit = allHabits.get(habitId);
-        if (habit == null) throw new HabitNotFoundException();
+    public void unmarkHabitCompletedToday(UUID habitId) throws HabitNotFoundException {
+        batchGate.readLock().lock();
+        try {
+            Habit habit = find(habitId);
+            if (habit == null) throw new HabitNotFoundException();
 
-        habit.unmarkCompletedToday();
-        recomputeDashboardMetrics();
-        Persistence.saveSnapshot();
+            synchronized (lockFor(habitId)) {
+                LocalDate today = LocalDate.now();
+                long day = today.toEpochDay();
+                if (!habit.isCompletedOnEpochDay(day)) return; // already clear: nothing to journal or announce
+
+                boolean wasCounted = countsToday(habit, today);
+                habit = writable(habit);
+                habit.setCompletedOnEpochDay(day, false);
+                if (!deferred(habitId, day)) {
+                    index.update(habit);
+                    summary.completionChanged(habit, day);
+                }
+                if (wasCounted) adjustDashboardMetrics(today, 0, -1);
+                persistence.journalCompletion(habitId, today, false);
+                emit(new HabitEvent.CompletionChanged(habit, today));
+            }
+        } finally {
+            batchGate.readLock().unlock();
+        }
     }
 
     // Toggle for TODAY
-    public static void setCompletedToday(UUID habitId, boolean completed)
+    public void setCompletedToday(UUID habitId, boolean completed)
             throws HabitNotFoundException, HabitAlreadyCompleteException, HabitNotActiveTodayException {
         if (completed) {
             markHabitCompletedToday(habitId);
         } else {
             unmarkHabitCompletedToday(habitId);
         }
-        recomputeDashboardMetrics();
+    }
+
+    /**
+     * Operations available inside batch(...). Each one applies to the batch's draft at once, so
+     * later operations (and the lookups, on the batch's thread) see earlier ones; nothing is
+     * published until the batch commits.
+     */
+    public final class Batch {
+        private final Set<UUID> copies = new HashSet<>(); // habits this scope copied into the draft
+        private View start; // the draft when the scope opened, put back if it fails
+        private boolean closed;
+
+        private Batch() {}
+
+        public UUID create(String name, Priority priority, Category category, EnumSet<DayOfWeek> schedule) {
+            checkOpen();
+            return createHabit(name, priority, category, schedule);
+        }
+
+        public void remove(UUID id) throws HabitNotFoundException {
+            existing(id);
+            removeHabit(id);
+        }
+
+        public void deactivate(UUID id) throws HabitNotFoundException, AlreadyNotActiveException {
+            existing(id);
+            deactivateHabit(id);
+        }
+
+        public void rename(UUID id, String name) throws HabitNotFoundException {
+            existing(id);
+            changeName(id, name);
+        }
+
+        public void setPriority(UUID id, Priority priority) throws HabitNotFoundException {
+            existing(id);
+            changePriority(id, priority);
+        }
+
+        public void setCategory(UUID id, Category category) throws HabitNotFoundException {
+            existing(id);
+            changeCategory(id, category);
+        }
+
+        public void setSchedule(UUID id, EnumSet<DayOfWeek> schedule) throws HabitNotFoundException {
+            existing(id);
+            changeSchedule(id, schedule);
+        }
+
+        public void setCompletedToday(UUID id, boolean completed)
+                throws HabitNotFoundException, HabitAlreadyCompleteException, HabitNotActiveTodayException {
+            existing(id);
+            HabitService.this.setCompletedToday(id, completed);
+        }
+
+        private void existing(UUID id) throws HabitNotFoundException {
+            checkOpen();
+            if (find(id) == null) throw new HabitNotFoundException();
+        }
+
+        private void checkOpen() {
+            if (closed) throw new IllegalStateException("batch already finished");
+        }
     }
 }
@@ -0,0 +1,129 @@
+package com.ramika.habit.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Single writer thread behind HabitService.submit: takes queued commands, applies everything
+ * waiting (up to maxBatch) as one batch, then completes their futures. The commands work on
+ * the batch's draft, so readers see a batch's changes in one new View published when it
+ * commits, and the dashboard metrics and the journal/snapshot write each happen once per batch.
+ * Each command runs in its own scope, so one that throws leaves nothing behind (no changed
+ * habits, journal records or events) while the rest of its batch still commits.
+ */
+final class HabitWriter {
+    private final HabitService service;
+    private final BlockingQueue<Pending<?>> queue = new LinkedBlockingQueue<>();
+    private final int maxBatch;
+    private final Thread thread;
+    private boolean closed; // guarded by this
+
+    HabitWriter(HabitService service, int maxBatch) {
+        this.service = service;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.thread = new Thread(this::run, "habit-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Queue a command; null once the writer is closed (caller then runs it inline). */
+    synchronized <T> CompletableFuture<T> submit(HabitCommand<T> command) {
+        if (closed) return null;
+        Pending<T> p = new Pending<>(command);
+        queue.add(p);
+        return p.future;
+    }
+
+    /** Stop accepting commands, apply everything already queued, then end the thread. */
+    void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            queue.add(new Pending<>(null)); // wake-up marker
+        }
+        if (Thread.currentThread() == thread) return;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Pending<?>> batch = new ArrayList<>();
+        try {
+            while (true) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    return;
+                }
+                queue.drainTo(batch, maxBatch - 1);
+                apply(batch);
+                batch.clear();
+
+                synchronized (this) {
+                    if (closed && queue.isEmpty()) return;
+                }
+            }
+        } finally {
+            // stopped, or an Error escaped a command: later submits run inline, and nobody is
+            // left waiting on a command that will never run
+            synchronized (this) {
+                closed = true;
+            }
+            queue.drainTo(batch);
+            for (Pending<?> p : batch) p.abandon();
+        }
+    }
+
+    private void apply(List<Pending<?>> batch) {
+        service.applyBatch(() -> {
+            for (Pending<?> p : batch) p.execute(service);
+        });
+        // complete only after the batch is visible and handed to Persistence
+        for (Pending<?> p : batch) p.complete();
+    }
+
+    private static final class Pending<T> {
+        final HabitCommand<T> command;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+        Exception error;
+        boolean executed;
+
+        Pending(HabitCommand<T> command) { this.command = command; }
+
+        void execute(HabitService service) {
+            if (command == null) return;
+            try {
+                result = service.runScoped(command); // dropped from the draft already if it threw
+            } catch (Exception e) {
+                error = e; // one failing command must not take the writer down
+            }
+            executed = true;
+        }
+
+        void complete() {
+            if (command == null) return;
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        }
+
+        // the writer is stopping with this one unfinished; its batch still commits what already ran
+        void abandon() {
+            if (command == null) return;
+            if (executed) {
+                complete();
+            } else {
+                future.completeExceptionally(new IllegalStateException("habit writer stopped"));
+            }
+        }
+    }
+}
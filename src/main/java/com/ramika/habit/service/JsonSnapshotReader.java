@@ -0,0 +1,264 @@
+package com.ramika.habit.service;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.ramika.habit.model.Category;
+import com.ramika.habit.model.Habit;
+import com.ramika.habit.model.Priority;
+import com.ramika.habit.model.Status;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Streaming reader for JSON snapshots / exports: builds each Habit straight from the token
+ * stream instead of going through the AppState/HabitRec DTOs, so apart from the habits
+ * themselves only the habit currently being read is held in memory.
+ *
+ * Saved rollups ("rollups" on each habit) are only kept when the caller asks for them;
+ * imports ignore them.
+ */
+final class JsonSnapshotReader {
+    private JsonSnapshotReader() {}
+
+    /** Marker returned by parseIsoDay for text that isn't a date. */
+    static final long NOT_A_DATE = Long.MIN_VALUE;
+
+    private static final int[] DAYS_IN_MONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+    static List<Habit> read(Reader in) throws IOException {
+        return read(in, null);
+    }
+
+    /** read(in), also collecting each habit's saved closed rollups into closed (when not null). */
+    static List<Habit> read(Reader in, Map<UUID, SummaryService.ClosedBuckets> closed) throws IOException {
+        List<Habit> out = new ArrayList<>();
+        JsonReader r = new JsonReader(in);
+        if (r.peek() == JsonToken.END_DOCUMENT) return out;
+
+        long[] scratch = new long[64]; // completion days of the current habit, reused
+        r.beginObject();
+        while (r.hasNext()) {
+            if ("habits".equals(r.nextName()) && r.peek() == JsonToken.BEGIN_ARRAY) {
+                r.beginArray();
+                while (r.hasNext()) {
+                    if (r.peek() != JsonToken.BEGIN_OBJECT) {
+                        r.skipValue();
+                        continue;
+                    }
+                    HabitFields f = readHabit(r, scratch);
+                    scratch = f.days;
+                    Habit h = f.toHabit();
+                    out.add(h);
+                    if (closed != null && f.rollups != null && f.id != null) closed.put(h.getId(), f.rollups);
+                }
+                r.endArray();
+            } else {
+                r.skipValue();
+            }
+        }
+        r.endObject();
+        return out;
+    }
+
+    private static HabitFields readHabit(JsonReader r, long[] scratch) throws IOException {
+        HabitFields f = new HabitFields();
+        f.days = scratch;
+
+        r.beginObject();
+        while (r.hasNext()) {
+            String key = r.nextName();
+            if (r.peek() == JsonToken.NULL) {
+                r.nextNull();
+                continue;
+            }
+            switch (key) {
+                case "id"          -> f.id = parseUuid(r.nextString());
+                case "name"        -> f.name = r.nextString();
+                case "priority"    -> f.priority = enumOrNull(Priority.class, r.nextString());
+                case "category"    -> f.category = enumOrNull(Category.class, r.nextString());
+                case "status"      -> f.status = enumOrNull(Status.class, r.nextString());
+                case "schedule"    -> readSchedule(r, f.schedule);
+                case "completions" -> readCompletions(r, f);
+                case "rollups"     -> f.rollups = readRollups(r);
+                default            -> r.skipValue();
+            }
+        }
+        r.endObject();
+        return f;
+    }
+
+    private static void readSchedule(JsonReader r, EnumSet<DayOfWeek> into) throws IOException {
+        r.beginArray();
+        while (r.hasNext()) {
+            if (r.peek() != JsonToken.STRING) {
+                r.skipValue();
+                continue;
+            }
+            DayOfWeek d = enumOrNull(DayOfWeek.class, r.nextString());
+            if (d != null) into.add(d);
+        }
+        r.endArray();
+    }
+
+    private static void readCompletions(JsonReader r, HabitFields f) throws IOException {
+        r.beginArray();
+        while (r.hasNext()) {
+            if (r.peek() != JsonToken.STRING) {
+                r.skipValue();
+                continue;
+            }
+            String text = r.nextString();
+            long day = parseIsoDay(text);
+            if (day == NOT_A_DATE) continue;
+            if (!BinaryCodec.isStorableDay(day)) throw new IOException("completion day out of range: " + text);
+            if (f.dayCount == f.days.length) f.days = Arrays.copyOf(f.days, f.days.length * 2);
+            f.days[f.dayCount++] = day;
+        }
+        r.endArray();
+    }
+
+    // {"mask":..., "asOf":"YYYY-MM-DD", "week":[...], "month":[...], "year":[...]}; null if unusable
+    private static SummaryService.ClosedBuckets readRollups(JsonReader r) throws IOException {
+        int mask = -1;
+        long asOf = NOT_A_DATE;
+        Map<SummaryService.Bucket, long[]> buckets = new EnumMap<>(SummaryService.Bucket.class);
+
+        r.beginObject();
+        while (r.hasNext()) {
+            String key = r.nextName();
+            JsonToken t = r.peek();
+            if (key.equals("mask") && t == JsonToken.NUMBER) {
+                mask = r.nextInt();
+            } else if (key.equals("asOf") && t == JsonToken.STRING) {
+                asOf = parseIsoDay(r.nextString());
+            } else if (t == JsonToken.BEGIN_ARRAY && bucketOrNull(key) != null) {
+                buckets.put(bucketOrNull(key), readLongs(r));
+            } else {
+                r.skipValue();
+            }
+        }
+        r.endObject();
+
+        if (mask < 0 || asOf == NOT_A_DATE) return null;
+        return new SummaryService.ClosedBuckets(mask, asOf, buckets);
+    }
+
+    private static SummaryService.Bucket bucketOrNull(String key) {
+        return switch (key) {
+            case "week"  -> SummaryService.Bucket.WEEK;
+            case "month" -> SummaryService.Bucket.MONTH;
+            case "year"  -> SummaryService.Bucket.YEAR;
+            default      -> null;
+        };
+    }
+
+    private static long[] readLongs(JsonReader r) throws IOException {
+        long[] out = new long[16];
+        int n = 0;
+        r.beginArray();
+        while (r.hasNext()) {
+            if (r.peek() != JsonToken.NUMBER) {
+                r.skipValue();
+                continue;
+            }
+            if (n == out.length) out = Arrays.copyOf(out, n * 2);
+            out[n++] = r.nextLong();
+        }
+        r.endArray();
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * "YYYY-MM-DD" -> epoch day without building a LocalDate; anything else (e.g. extended
+     * years) goes through LocalDate.parse. Returns NOT_A_DATE when the text isn't a date.
+     */
+    static long parseIsoDay(String s) {
+        if (s.length() != 10 || s.charAt(4) != '-' || s.charAt(7) != '-') return parseSlow(s);
+        int y = digits(s, 0, 4);
+        int m = digits(s, 5, 7);
+        int d = digits(s, 8, 10);
+        if (y < 0 || m < 1 || m > 12 || d < 1) return NOT_A_DATE;
+        boolean leap = (y & 3) == 0 && (y % 100 != 0 || y % 400 == 0);
+        int monthLen = m == 2 && leap ? 29 : DAYS_IN_MONTH[m - 1];
+        if (d > monthLen) return NOT_A_DATE;
+
+        // days-from-civil (proleptic Gregorian, March-based year)
+        long yy = m <= 2 ? y - 1 : y;
+        long era = Math.floorDiv(yy, 400);
+        long yoe = yy - era * 400;
+        long doy = (153L * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    private static long parseSlow(String s) {
+        try {
+            return LocalDate.parse(s).toEpochDay();
+        } catch (RuntimeException e) {
+            return NOT_A_DATE;
+        }
+    }
+
+    // non-negative value of s[from, to), or -1 if any char isn't a digit
+    private static int digits(String s, int from, int to) {
+        int v = 0;
+        for (int i = from; i < to; i++) {
+            int c = s.charAt(i) - '0';
+            if (c < 0 || c > 9) return -1;
+            v = v * 10 + c;
+        }
+        return v;
+    }
+
+    private static UUID parseUuid(String s) {
+        try {
+            return UUID.fromString(s);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static <E extends Enum<E>> E enumOrNull(Class<E> t, String n) {
+        try {
+            return Enum.valueOf(t, n);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** Fields of the habit being read; keys may arrive in any order. */
+    private static final class HabitFields {
+        UUID id;
+        String name;
+        Priority priority;
+        Category category;
+        Status status;
+        final EnumSet<DayOfWeek> schedule = EnumSet.noneOf(DayOfWeek.class);
+        long[] days;
+        int dayCount;
+        SummaryService.ClosedBuckets rollups;
+
+        Habit toHabit() {
+            Habit h = new Habit(
+                    id != null ? id : UUID.randomUUID(),
+                    name,
+                    priority != null ? priority : Priority.LOW,
+                    category != null ? category : Category.OTHER,
+                    schedule
+            );
+            if (status == Status.INACTIVE) h.setActiveStatus(Status.INACTIVE);
+            h.setCompletedDays(days, dayCount);
+            return h;
+        }
+    }
+}
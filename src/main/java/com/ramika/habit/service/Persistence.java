@@ -6,85 +6,475 @@ import com.ramika.habit.model.Habit;
 import com.ramika.habit.model.Priority;
 import com.ramika.habit.model.Status;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.SequenceInputStream;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
 
 /**
- * JSON persistence for:
+ * Persistence for:
  *  - Habits (id, name, priority, category, status, schedule)
  *  - Per-habit completions: ISO dates ("YYYY-MM-DD")
  *
- * File saved at ~/.habit-hero.json
+ * Each instance owns one directory (the user's home for the desktop app, one per tenant
+ * under TenantRegistry) and the files in it. The snapshot is saved at <dir>/.habit-hero.json,
+ * either as pretty JSON (Codec.JSON, the default) or in the compact format of BinaryCodec
+ * (Codec.BINARY); the codec is detected on load. JSON stays the import/export format
+ * (exportJson / importJson).
+ *
+ * Saves are synchronous by default. After enableWriteBehind(quietMs), saveSnapshot() only
+ * marks the state dirty and a background writer (a small pool shared by all instances)
+ * persists it once no further change has arrived for quietMs; flush() writes any pending
+ * change immediately.
+ *
+ * With enableJournal(maxBytes), each HabitService mutation is appended as one JSON line to
+ * <dir>/.habit-hero.journal instead of rewriting the snapshot. Startup replays the journal
+ * over the snapshot; once it grows past maxBytes a snapshot is written and the journal dropped.
+ * Journal records are absolute (set name, set completed on date...) so replaying one that
+ * the snapshot already contains is harmless.
+ *
+ * Each habit in a snapshot also carries its closed week / month / year rollups (see
+ * SummaryService), so startup takes them as saved instead of recounting the history.
+ *
+ * Snapshots are written to a temp file, then atomically renamed over the live file; the
+ * generation being replaced is kept as .habit-hero.json.prev. Each snapshot ends with a
+ * "#crc32:xxxxxxxx" trailer line. A live file that fails its checksum (or doesn't parse)
+ * is skipped at startup in favour of the previous generation. setDurability() picks when
+ * writes are fsync'd: every write, at most once per interval (a write that skips it gets a
+ * trailing fsync once the interval is up), or never.
  */
 public final class Persistence {
-    private Persistence() {}
+    private final HabitService service;
+
+    private final Path dataFile;
+    private final Path journalFile;
+    private final Path tempFile;
+    private final Path prevFile;
+    private volatile boolean dirReady;
+
+    // created by HabitService, which owns the habits this saves and loads
+    Persistence(HabitService service, Path dir) {
+        this.service = service;
+        this.dataFile    = dir.resolve(".habit-hero.json");
+        this.journalFile = dir.resolve(".habit-hero.journal");
+        this.tempFile    = dir.resolve(".habit-hero.json.tmp");
+        this.prevFile    = dir.resolve(".habit-hero.json.prev");
+    }
+
+    /** Where the desktop user's files live: the home directory. */
+    static Path defaultDirectory() {
+        return Paths.get(System.getProperty("user.home"));
+    }
+
+    private static final byte[] CRC_TRAILER = "\n#crc32:".getBytes(StandardCharsets.US_ASCII);
+    private static final int    CRC_TRAILER_LEN = CRC_TRAILER.length + 8 + 1; // tag + hex + '\n'
 
-    private static final Path DEFAULT_FILE =
-            Paths.get(System.getProperty("user.home"), ".habit-hero.json");
+    /** On-disk snapshot encoding; loading accepts either. */
+    public enum Codec { JSON, BINARY }
+
+    /** When snapshot and journal writes are forced to stable storage. */
+    public enum Durability {
+        ALWAYS,    // fsync every write
+        INTERVAL,  // fsync at most once per interval
+        NONE       // leave it to the OS
+    }
 
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final Gson GSON_LINE = new Gson();
+
+    // one small pool runs the write-behind ticks of every instance
+    private static ScheduledExecutorService writerPool; // guarded by Persistence.class
+
+    // write-behind state (writer == null -> synchronous saves)
+    private volatile ScheduledExecutorService writer;
+    private volatile long quietPeriodMs;
+    private volatile long lastDirtyNanos;
+    private final AtomicLong    dirtyGeneration = new AtomicLong();
+    private final AtomicBoolean writeScheduled  = new AtomicBoolean(false);
+    private final Object        writeLock      = new Object();
+    private long writtenGeneration = 0; // guarded by writeLock
+
+    // journal state (journalMaxBytes <= 0 -> every mutation saves a snapshot)
+    private volatile long journalMaxBytes = 0;
+    private long journalBytes = 0;        // guarded by writeLock
+    private boolean compactionRequested;  // guarded by writeLock
+
+    // records held back while HabitService applies a batch on this thread
+    private final ThreadLocal<List<JournalRec>> pendingBatch = new ThreadLocal<>();
+
+    private volatile Codec codec = Codec.JSON;
+
+    // fsync policy
+    private volatile Durability durability = Durability.INTERVAL;
+    private volatile long fsyncIntervalMs  = 1000;
+    private long lastFsyncNanos = System.nanoTime() - TimeUnit.DAYS.toNanos(1); // guarded by writeLock
+    private boolean syncOwed;      // an INTERVAL write skipped its fsync; guarded by writeLock
+    private boolean syncScheduled; // a trailing fsync is queued on the writer pool; guarded by writeLock
 
     // ===== Public API =====
 
     /** Load habits + completions from disk into HabitService. */
-    public static void bootstrapLoad() {
-        AppState st = loadFromDisk();
-        if (st == null) return;
-
-        Map<UUID, Habit> created = new HashMap<>();
-        if (st.habits != null) {
-            for (HabitRec r : st.habits) {
-                UUID id = r.id != null ? r.id : UUID.randomUUID();
-                EnumSet<DayOfWeek> sched = EnumSet.noneOf(DayOfWeek.class);
-                if (r.schedule != null) {
-                    for (String d : r.schedule) {
-                        try { sched.add(DayOfWeek.valueOf(d)); } catch (Throwable ignored) {}
-                    }
-                }
+    public void bootstrapLoad() {
+        Map<UUID, Habit> staged = new LinkedHashMap<>();
+        Map<UUID, SummaryService.ClosedBuckets> closed = new HashMap<>();
+        for (Habit h : loadFromDisk(closed)) staged.put(h.getId(), h);
+        replayJournal(staged);
+        service.hydrate(staged.values(), closed);
+    }
+
+    /** Write all habits as plain JSON (no checksum trailer) to target. */
+    public void exportJson(Path target) throws IOException {
+        AppState st;
+        Lock gate = service.snapshotLock();
+        if (gate != null) gate.lock();
+        try {
+            st = buildState(capture());
+        } finally {
+            if (gate != null) gate.unlock();
+        }
+        try (Writer w = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            GSON.toJson(st, w);
+        }
+    }
+
+    /** Merge habits from a JSON export into HabitService (same ids are replaced), then save. */
+    public void importJson(Path source) throws IOException {
+        List<Habit> habits;
+        try (Reader r = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            habits = JsonSnapshotReader.read(r);
+        } catch (RuntimeException e) {
+            throw new IOException("not a habit export: " + source, e);
+        }
+        service.hydrate(habits);
+        saveSnapshot();
+    }
+
+    /** Pick the snapshot encoding used by future saves. */
+    public void setCodec(Codec c) {
+        codec = c == null ? Codec.JSON : c;
+    }
+
+    /** Save all habits + completions to disk (deferred and coalesced in write-behind mode). */
+    public void saveSnapshot() {
+        dirtyGeneration.incrementAndGet();
+        ScheduledExecutorService w = writer;
+        if (w == null) {
+            writeIfDirty();
+            return;
+        }
+        lastDirtyNanos = System.nanoTime();
+        if (writeScheduled.compareAndSet(false, true)) {
+            w.schedule(this::writeBehindTick, quietPeriodMs, TimeUnit.MILLISECONDS);
+        }
+    }
 
-                HabitService.createHabitFromPersistence(
-                        id,
-                        r.name,
-                        safeEnum(r.priority, Priority.class, Priority.LOW),
-                        safeEnum(r.category, Category.class, Category.OTHER),
-                        sched,
-                        safeEnum(r.status, Status.class, Status.ACTIVE)
-                );
+    /** Switch to write-behind: bursts of saves become one write after quietMs without changes. */
+    public synchronized void enableWriteBehind(long quietMs) {
+        quietPeriodMs = Math.max(0, quietMs);
+        if (writer == null) writer = writerPool();
+    }
 
-                Habit h = HabitService.getAllHabits().get(id);
-                if (h != null) created.put(id, h);
+    private static synchronized ScheduledExecutorService writerPool() {
+        if (writerPool == null) {
+            int threads = Math.min(4, Runtime.getRuntime().availableProcessors());
+            writerPool = Executors.newScheduledThreadPool(threads, r -> {
+                Thread t = new Thread(r, "persistence-writer");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return writerPool;
+    }
+
+    // tenants' directories are created on first write
+    private void ensureDir() throws IOException {
+        if (dirReady) return;
+        Path dir = dataFile.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        dirReady = true;
+    }
+
+    /** Choose the fsync policy; intervalMs only applies to Durability.INTERVAL. */
+    public void setDurability(Durability policy, long intervalMs) {
+        durability = policy == null ? Durability.INTERVAL : policy;
+        fsyncIntervalMs = Math.max(0, intervalMs);
+    }
+
+    /** Journal mutations instead of saving snapshots; compact once the journal passes maxBytes. */
+    public void enableJournal(long maxBytes) {
+        synchronized (writeLock) {
+            journalMaxBytes = maxBytes;
+            try {
+                journalBytes = Files.exists(journalFile) ? Files.size(journalFile) : 0;
+            } catch (IOException e) {
+                journalBytes = 0;
             }
         }
+    }
 
-        // Apply completions
-        if (st.habits != null) {
-            for (HabitRec r : st.habits) {
-                if (r.completions == null || r.id == null) continue;
-                Habit h = created.get(r.id);
-                if (h == null) continue;
-                for (String ds : r.completions) {
-                    try {
-                        LocalDate d = LocalDate.parse(ds);
-                        h.setCompletedOn(d, true);
-                    } catch (Throwable ignored) {}
+    // ----- mutation records (called by HabitService after each change) -----
+
+    void journalCreate(Habit h) {
+        JournalRec j = new JournalRec(OP_CREATE, h.getId());
+        j.name = h.getName();
+        j.priority = safeName(h.getPriority());
+        j.category = safeName(h.getCategory());
+        j.schedule = scheduleNames(h.getSchedule());
+        journal(j);
+    }
+
+    void journalRemove(UUID id)     { journal(new JournalRec(OP_REMOVE, id)); }
+
+    void journalDeactivate(UUID id) { journal(new JournalRec(OP_DEACTIVATE, id)); }
+
+    void journalRename(UUID id, String name) {
+        JournalRec j = new JournalRec(OP_RENAME, id);
+        j.name = name;
+        journal(j);
+    }
+
+    void journalPriority(UUID id, Priority priority) {
+        JournalRec j = new JournalRec(OP_PRIORITY, id);
+        j.priority = safeName(priority);
+        journal(j);
+    }
+
+    void journalCategory(UUID id, Category category) {
+        JournalRec j = new JournalRec(OP_CATEGORY, id);
+        j.category = safeName(category);
+        journal(j);
+    }
+
+    void journalSchedule(UUID id, EnumSet<DayOfWeek> schedule) {
+        JournalRec j = new JournalRec(OP_SCHEDULE, id);
+        j.schedule = scheduleNames(schedule);
+        journal(j);
+    }
+
+    void journalCompletion(UUID id, LocalDate date, boolean completed) {
+        JournalRec j = new JournalRec(OP_COMPLETION, id);
+        j.date = date.toString();
+        j.completed = completed;
+        journal(j);
+    }
+
+    // Start collecting this thread's records; endBatch writes them as one request
+    void beginBatch() {
+        pendingBatch.set(new ArrayList<>());
+    }
+
+    // Position in the current batch, for discardBatch
+    int batchMark() {
+        List<JournalRec> batch = pendingBatch.get();
+        return batch == null ? 0 : batch.size();
+    }
+
+    // Drop the records collected since mark (the changes were rolled back)
+    void discardBatch(int mark) {
+        List<JournalRec> batch = pendingBatch.get();
+        if (batch != null && mark < batch.size()) batch.subList(mark, batch.size()).clear();
+    }
+
+    void endBatch() {
+        List<JournalRec> batch = pendingBatch.get();
+        pendingBatch.remove();
+        if (batch != null && !batch.isEmpty()) append(batch);
+    }
+
+    // Append one record (or queue it for the current batch)
+    private void journal(JournalRec j) {
+        List<JournalRec> batch = pendingBatch.get();
+        if (batch != null) {
+            batch.add(j);
+            return;
+        }
+        append(List.of(j));
+    }
+
+    // Append records in one write, or fall back to a full snapshot when journaling is off
+    private void append(List<JournalRec> recs) {
+        if (journalMaxBytes <= 0) {
+            saveSnapshot();
+            return;
+        }
+        boolean compact = false;
+        synchronized (writeLock) {
+            StringBuilder sb = new StringBuilder();
+            for (JournalRec j : recs) sb.append(GSON_LINE.toJson(j)).append('\n');
+            byte[] lines = sb.toString().getBytes(StandardCharsets.UTF_8);
+            try {
+                ensureDir();
+            } catch (IOException ignored) {} // the open below reports it
+            try (FileChannel ch = FileChannel.open(journalFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buf = ByteBuffer.wrap(lines);
+                while (buf.hasRemaining()) ch.write(buf);
+                if (fsyncDue()) ch.force(false);
+                journalBytes += lines.length;
+            } catch (IOException e) {
+                compactionRequested = false; // can't append: persist the whole state instead
+                compact = true;
+            }
+            if (journalBytes > journalMaxBytes && !compactionRequested) {
+                compactionRequested = true;
+                compact = true;
+            }
+        }
+        if (compact) saveSnapshot();
+    }
+
+    /** Re-apply journaled mutations to the habits just loaded (before HabitService sees them). */
+    private void replayJournal(Map<UUID, Habit> habits) {
+        if (!Files.exists(journalFile)) return;
+        try (BufferedReader r = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                JournalRec j;
+                try {
+                    j = GSON_LINE.fromJson(line, JournalRec.class);
+                } catch (JsonParseException e) {
+                    continue; // torn final line after a crash
+                }
+                if (j != null && j.op != null && j.id != null) applyJournalRec(habits, j);
+            }
+        } catch (IOException ignored) {}
+    }
+
+    private static void applyJournalRec(Map<UUID, Habit> habits, JournalRec j) {
+        if (OP_CREATE.equals(j.op)) {
+            // the snapshot may already hold it (journaled just before the snapshot copied it
+            // out); replacing it with an empty habit would wipe its completions
+            if (habits.containsKey(j.id)) return;
+            habits.put(j.id, new Habit(
+                    j.id,
+                    j.name,
+                    safeEnum(j.priority, Priority.class, Priority.LOW),
+                    safeEnum(j.category, Category.class, Category.OTHER),
+                    parseSchedule(j.schedule)
+            ));
+            return;
+        }
+        Habit h = habits.get(j.id);
+        if (h == null) return;
+        switch (j.op) {
+            case OP_REMOVE     -> habits.remove(j.id);
+            case OP_DEACTIVATE -> h.setActiveStatus(Status.INACTIVE);
+            case OP_RENAME     -> h.setName(j.name);
+            case OP_PRIORITY   -> h.setPriority(safeEnum(j.priority, Priority.class, h.getPriority()));
+            case OP_CATEGORY   -> h.setCategory(safeEnum(j.category, Category.class, h.getCategory()));
+            case OP_SCHEDULE   -> h.setSchedule(parseSchedule(j.schedule));
+            case OP_COMPLETION -> {
+                try {
+                    h.setCompletedOn(LocalDate.parse(j.date), Boolean.TRUE.equals(j.completed));
+                } catch (Exception ignored) {}
+            }
+            default -> {}
+        }
+    }
+
+    /** Write any pending change now, on the calling thread (call before exit). */
+    public void flush() {
+        writeIfDirty();
+        synchronized (writeLock) {
+            syncIfOwed(); // don't leave it to a trailing fsync that may not run before exit
+        }
+    }
+
+    // Runs on the writer thread; waits until the state has been quiet for quietPeriodMs
+    private void writeBehindTick() {
+        long idleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastDirtyNanos);
+        if (idleMs < quietPeriodMs) {
+            writer.schedule(this::writeBehindTick, quietPeriodMs - idleMs, TimeUnit.MILLISECONDS);
+            return;
+        }
+        writeScheduled.set(false);
+        writeIfDirty();
+    }
+
+    // The habits are copied out with every change held off (HabitService.snapshotLock), unless
+    // this thread is in the middle of one; encoding and writing the copy then only hold
+    // writeLock. Changes made after the copy wait on writeLock to journal, so they land in the
+    // fresh journal rather than the one deleted here.
+    private void writeIfDirty() {
+        Lock gate = service.snapshotLock();
+        if (gate != null) gate.lock();
+        boolean gated = gate != null;
+        try {
+            synchronized (writeLock) {
+                long gen = dirtyGeneration.get();
+                if (gen == writtenGeneration) return;
+                Frozen state = capture();
+                if (gated) {
+                    gate.unlock();
+                    gated = false;
+                }
+                try {
+                    saveToDisk(state);
+                } catch (IOException e) {
+                    // keep the journal and the dirty generation; the next save retries
+                    System.err.println("Persistence: could not save " + dataFile + ": " + e.getMessage());
+                    return;
                 }
+                writtenGeneration = gen;
+                // the snapshot now covers everything journaled so far
+                try {
+                    Files.deleteIfExists(journalFile);
+                } catch (IOException ignored) {}
+                journalBytes = 0;
+                compactionRequested = false;
             }
+        } finally {
+            if (gated) gate.unlock();
         }
+    }
 
-        HabitService.forceRecompute();
+    /** The habits as of one instant, copied out of the service, with their closed rollups. */
+    private record Frozen(List<Habit> habits, Map<UUID, SummaryService.ClosedBuckets> closed) {}
+
+    // caller holds the service's snapshotLock, or is in the middle of a change itself
+    private Frozen capture() {
+        long today = LocalDate.now().toEpochDay();
+        List<Habit> habits = new ArrayList<>(service.getAllHabits().size());
+        Map<UUID, SummaryService.ClosedBuckets> closed = new HashMap<>();
+        for (Habit h : service.getAllHabits().values()) {
+            habits.add(h.copy());
+            SummaryService.ClosedBuckets c = service.getSummary().closedBuckets(h.getId(), today);
+            if (c != null) closed.put(h.getId(), c);
+        }
+        return new Frozen(habits, closed);
     }
 
-    /** Save all habits + completions to disk. */
-    public static void saveSnapshot() {
+    private AppState buildState(Frozen state) {
         AppState st = new AppState();
         st.habits = new ArrayList<>();
 
-        for (Habit h : HabitService.getAllHabits().values()) {
+        for (Habit h : state.habits()) {
             HabitRec r = new HabitRec();
             r.id = h.getId();
             r.name = h.getName();
@@ -92,10 +482,7 @@ public final class Persistence {
             r.category = safeName(h.getCategory());
             r.status = safeName(h.getActiveStatus());
 
-            r.schedule = new ArrayList<>();
-            if (h.getSchedule() != null) {
-                for (DayOfWeek d : h.getSchedule()) r.schedule.add(d.name());
-            }
+            r.schedule = scheduleNames(h.getSchedule());
 
             r.completions = new ArrayList<>();
             if (h.getCompletions() != null) {
@@ -106,39 +493,214 @@ public final class Persistence {
                 });
             }
 
+            SummaryService.ClosedBuckets closed = state.closed().get(h.getId());
+            if (closed != null) {
+                r.rollups = new RollupRec();
+                r.rollups.mask = closed.mask;
+                r.rollups.asOf = LocalDate.ofEpochDay(closed.asOf).toString();
+                r.rollups.week = closed.buckets.get(SummaryService.Bucket.WEEK);
+                r.rollups.month = closed.buckets.get(SummaryService.Bucket.MONTH);
+                r.rollups.year = closed.buckets.get(SummaryService.Bucket.YEAR);
+            }
+
             st.habits.add(r);
         }
-
-        saveToDisk(st);
+        return st;
     }
 
     // ===== Disk IO =====
 
-    private static AppState loadFromDisk() {
-        try {
-            if (!Files.exists(DEFAULT_FILE)) return new AppState();
-            try (Reader r = Files.newBufferedReader(DEFAULT_FILE)) {
-                AppState st = GSON.fromJson(r, AppState.class);
-                return st == null ? new AppState() : st;
+    /**
+     * Newest snapshot that passes its checksum and parses: live file first, then .prev. The
+     * closed rollups saved with it go into closed.
+     */
+    private List<Habit> loadFromDisk(Map<UUID, SummaryService.ClosedBuckets> closed) {
+        boolean sawFile = false;
+        for (Path p : new Path[] { dataFile, prevFile }) {
+            if (!Files.exists(p)) continue;
+            sawFile = true;
+            closed.clear();
+            List<Habit> habits = readSnapshot(p, closed);
+            if (habits != null) return habits;
+            System.err.println("Persistence: ignoring damaged snapshot " + p);
+        }
+        if (sawFile) System.err.println("Persistence: no readable snapshot, starting empty");
+        return new ArrayList<>();
+    }
+
+    /**
+     * Stream one snapshot into (not yet adopted) habits while checksumming the body; null when
+     * the file is unreadable, fails its checksum or doesn't parse. Files written before
+     * trailers existed are accepted if they parse.
+     */
+    private static List<Habit> readSnapshot(Path p, Map<UUID, SummaryService.ClosedBuckets> closed) {
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+            long size = ch.size();
+            long bodyLen = size;
+            long expectedCrc = -1;
+
+            if (size >= CRC_TRAILER_LEN) {
+                ByteBuffer tail = ByteBuffer.allocate(CRC_TRAILER_LEN);
+                while (tail.hasRemaining() && ch.read(tail, size - CRC_TRAILER_LEN + tail.position()) > 0) {}
+                byte[] t = tail.array();
+                if (Arrays.equals(t, 0, CRC_TRAILER.length, CRC_TRAILER, 0, CRC_TRAILER.length)) {
+                    String hex = new String(t, CRC_TRAILER.length, 8, StandardCharsets.US_ASCII);
+                    try {
+                        expectedCrc = Long.parseLong(hex, 16);
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                    bodyLen = size - CRC_TRAILER_LEN;
+                }
+            }
+
+            ch.position(0);
+            CRC32 crc = new CRC32();
+            InputStream body = new CheckedInputStream(new BufferedInputStream(
+                    limit(Channels.newInputStream(ch), bodyLen)), crc);
+
+            List<Habit> habits;
+            byte[] head = body.readNBytes(BinaryCodec.MAGIC.length);
+            if (BinaryCodec.isBinary(head)) {
+                if (bodyLen > Integer.MAX_VALUE - 8) return null;
+                byte[] all = new byte[(int) bodyLen];
+                System.arraycopy(head, 0, all, 0, head.length);
+                int n = body.readNBytes(all, head.length, all.length - head.length);
+                if (n != all.length - head.length) return null;
+                // the whole body is in memory: check it before trusting any count in it
+                if (expectedCrc >= 0 && crc.getValue() != expectedCrc) return null;
+                habits = BinaryCodec.decode(all, closed);
+            } else {
+                InputStream rest = new SequenceInputStream(new ByteArrayInputStream(head), body);
+                habits = JsonSnapshotReader.read(new InputStreamReader(rest, StandardCharsets.UTF_8), closed);
+                rest.transferTo(OutputStream.nullOutputStream()); // checksum covers any trailing bytes
             }
-        } catch (IOException e) {
-            return new AppState(); // fail safe
+
+            if (expectedCrc >= 0 && crc.getValue() != expectedCrc) return null;
+            return habits;
+        } catch (IOException | RuntimeException e) {
+            return null;
         }
     }
 
-    private static void saveToDisk(AppState st) {
-        try {
-            Path parent = DEFAULT_FILE.getParent();
-            if (parent != null && !Files.exists(parent)) Files.createDirectories(parent);
-            try (Writer w = Files.newBufferedWriter(DEFAULT_FILE,
-                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-                GSON.toJson(st, w);
+    // at most max bytes of in (the body, without its trailer)
+    private static InputStream limit(InputStream in, long max) {
+        return new FilterInputStream(in) {
+            private long left = max;
+
+            @Override public int read() throws IOException {
+                if (left <= 0) return -1;
+                int b = super.read();
+                if (b >= 0) left--;
+                return b;
+            }
+
+            @Override public int read(byte[] b, int off, int len) throws IOException {
+                if (left <= 0) return -1;
+                int n = super.read(b, off, (int) Math.min(len, left));
+                if (n > 0) left -= n;
+                return n;
             }
+        };
+    }
+
+    /** temp file -> (fsync) -> live linked (or copied) to .prev -> atomic rename temp over live. */
+    private void saveToDisk(Frozen state) throws IOException {
+        ensureDir();
+        boolean sync = fsyncDue();
+        try (FileChannel ch = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(ch));
+            CRC32 crc = new CRC32();
+            CheckedOutputStream body = new CheckedOutputStream(out, crc);
+            if (codec == Codec.BINARY) {
+                BinaryCodec.encode(state.habits(), state.closed(), body);
+            } else {
+                for (Habit h : state.habits()) BinaryCodec.checkDays(h); // as strict as the binary encoder
+                Writer w = new OutputStreamWriter(body, StandardCharsets.UTF_8);
+                GSON.toJson(buildState(state), w);
+                w.flush();
+            }
+            out.write(CRC_TRAILER);
+            out.write(String.format("%08x\n", crc.getValue()).getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            if (sync) ch.force(true);
+        }
+
+        // keep the generation being replaced as .prev while the live name stays in place, so
+        // there is no moment without a live file; then one atomic rename replaces it
+        if (Files.exists(dataFile)) {
+            Files.deleteIfExists(prevFile);
+            try {
+                Files.createLink(prevFile, dataFile);
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(dataFile, prevFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        try {
+            Files.move(tempFile, dataFile, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, dataFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (sync) syncDirectory(dataFile.getParent());
+    }
+
+    // make the rename itself durable (not supported on every platform)
+    private static void syncDirectory(Path dir) {
+        if (dir == null) return;
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
         } catch (IOException ignored) {}
     }
 
+    // caller holds writeLock
+    private boolean fsyncDue() {
+        return switch (durability) {
+            case ALWAYS -> true;
+            case NONE   -> false;
+            case INTERVAL -> {
+                long now = System.nanoTime();
+                long wait = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMs) - (now - lastFsyncNanos);
+                if (wait > 0) {
+                    scheduleTrailingSync(wait);
+                    yield false;
+                }
+                lastFsyncNanos = now;
+                yield true;
+            }
+        };
+    }
+
+    // caller holds writeLock: a write went unsynced, so force the files once the interval is up
+    private void scheduleTrailingSync(long delayNanos) {
+        syncOwed = true;
+        if (syncScheduled) return;
+        syncScheduled = true;
+        writerPool().schedule(() -> {
+            synchronized (writeLock) {
+                syncScheduled = false;
+                syncIfOwed();
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // caller holds writeLock
+    private void syncIfOwed() {
+        if (!syncOwed) return;
+        syncOwed = false;
+        lastFsyncNanos = System.nanoTime();
+        for (Path p : new Path[] { journalFile, dataFile }) {
+            if (!Files.exists(p)) continue;
+            try (FileChannel ch = FileChannel.open(p, StandardOpenOption.WRITE)) {
+                ch.force(true);
+            } catch (IOException ignored) {}
+        }
+        syncDirectory(dataFile.getParent());
+    }
+
     // ===== DTOs =====
 
+    // written by buildState(); reading goes through JsonSnapshotReader / BinaryCodec
     private static class AppState {
         List<HabitRec> habits = new ArrayList<>();
     }
@@ -151,12 +713,66 @@ public final class Persistence {
         String status;
         List<String> schedule;
         List<String> completions; // ISO dates
+        RollupRec rollups;
+    }
+
+    // closed rollup buckets: (bucket key, completed, best streak) triples per period
+    private static class RollupRec {
+        int mask;      // schedule they were counted under (bit 0 = Monday)
+        String asOf;   // ISO date; buckets ended before it
+        long[] week;   // key: weeks since the epoch (Monday-based)
+        long[] month;  // key: year * 12 + month - 1
+        long[] year;   // key: year
+    }
+
+    private static final String OP_CREATE     = "create";
+    private static final String OP_REMOVE     = "remove";
+    private static final String OP_DEACTIVATE = "deactivate";
+    private static final String OP_RENAME     = "rename";
+    private static final String OP_PRIORITY   = "priority";
+    private static final String OP_CATEGORY   = "category";
+    private static final String OP_SCHEDULE   = "schedule";
+    private static final String OP_COMPLETION = "completion";
+
+    // one line of ~/.habit-hero.journal; only the fields relevant to op are set
+    private static class JournalRec {
+        String op;
+        UUID id;
+        String name;
+        String priority;
+        String category;
+        List<String> schedule;   // create, schedule
+        String date;        // ISO date (completion)
+        Boolean completed;  // completion
+
+        JournalRec(String op, UUID id) {
+            this.op = op;
+            this.id = id;
+        }
     }
 
     // ===== helpers =====
 
     private static String safeName(Enum<?> e) { return e == null ? null : e.name(); }
 
+    private static List<String> scheduleNames(EnumSet<DayOfWeek> schedule) {
+        List<String> out = new ArrayList<>();
+        if (schedule != null) {
+            for (DayOfWeek d : schedule) out.add(d.name());
+        }
+        return out;
+    }
+
+    private static EnumSet<DayOfWeek> parseSchedule(List<String> names) {
+        EnumSet<DayOfWeek> sched = EnumSet.noneOf(DayOfWeek.class);
+        if (names != null) {
+            for (String d : names) {
+                try { sched.add(DayOfWeek.valueOf(d)); } catch (Throwable ignored) {}
+            }
+        }
+        return sched;
+    }
+
     private static <E extends Enum<E>> E safeEnum(String n, Class<E> t, E def) {
         if (n == null) return def;
         try { return Enum.valueOf(t, n); } catch (Throwable ex) { return def; }
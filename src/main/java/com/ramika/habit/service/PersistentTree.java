@@ -0,0 +1,177 @@
+package com.ramika.habit.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable sorted map (an AVL tree) for HabitService's published View. put / remove return a
+ * new tree that shares every node off the changed path with the old one, so a change costs
+ * O(log n) and a reader holding the old tree keeps an unchanging snapshot.
+ */
+final class PersistentTree<K extends Comparable<? super K>, V> implements Iterable<Map.Entry<K, V>> {
+    private static final PersistentTree<?, ?> EMPTY = new PersistentTree<>(null);
+
+    private final Node<K, V> root;
+
+    private PersistentTree(Node<K, V> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K extends Comparable<? super K>, V> PersistentTree<K, V> empty() {
+        return (PersistentTree<K, V>) EMPTY;
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    V get(K key) {
+        Node<K, V> n = root;
+        while (n != null) {
+            int c = key.compareTo(n.key);
+            if (c == 0) return n.value;
+            n = c < 0 ? n.left : n.right;
+        }
+        return null;
+    }
+
+    /** This tree with key mapped to value. */
+    PersistentTree<K, V> put(K key, V value) {
+        Node<K, V> r = put(root, key, value);
+        return r == root ? this : new PersistentTree<>(r);
+    }
+
+    /** This tree without key. */
+    PersistentTree<K, V> remove(K key) {
+        Node<K, V> r = remove(root, key);
+        return r == root ? this : new PersistentTree<>(r);
+    }
+
+    /** Entries in key order. */
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        InOrder<K, V> it = new InOrder<>();
+        for (Node<K, V> n = root; n != null; n = n.left) it.stack.push(n);
+        return it;
+    }
+
+    /** Entries in key order, starting at the first key >= from. */
+    Iterator<Map.Entry<K, V>> from(K from) {
+        InOrder<K, V> it = new InOrder<>();
+        Node<K, V> n = root;
+        while (n != null) {
+            if (from.compareTo(n.key) <= 0) {
+                it.stack.push(n);
+                n = n.left;
+            } else {
+                n = n.right;
+            }
+        }
+        return it;
+    }
+
+    // ----- nodes -----
+
+    private static final class Node<K, V> implements Map.Entry<K, V> {
+        final K key;
+        final V value;
+        final Node<K, V> left;
+        final Node<K, V> right;
+        final int height;
+        final int size;
+
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+
+        @Override public K getKey()   { return key; }
+        @Override public V getValue() { return value; }
+        @Override public V setValue(V v) { throw new UnsupportedOperationException(); }
+    }
+
+    private static int height(Node<?, ?> n) { return n == null ? 0 : n.height; }
+    private static int size(Node<?, ?> n)   { return n == null ? 0 : n.size; }
+
+    private static <K extends Comparable<? super K>, V> Node<K, V> put(Node<K, V> n, K key, V value) {
+        if (n == null) return new Node<>(key, value, null, null);
+        int c = key.compareTo(n.key);
+        if (c == 0) return n.value == value ? n : new Node<>(key, value, n.left, n.right);
+        if (c < 0) {
+            Node<K, V> l = put(n.left, key, value);
+            return l == n.left ? n : balance(n.key, n.value, l, n.right);
+        }
+        Node<K, V> r = put(n.right, key, value);
+        return r == n.right ? n : balance(n.key, n.value, n.left, r);
+    }
+
+    private static <K extends Comparable<? super K>, V> Node<K, V> remove(Node<K, V> n, K key) {
+        if (n == null) return null;
+        int c = key.compareTo(n.key);
+        if (c < 0) {
+            Node<K, V> l = remove(n.left, key);
+            return l == n.left ? n : balance(n.key, n.value, l, n.right);
+        }
+        if (c > 0) {
+            Node<K, V> r = remove(n.right, key);
+            return r == n.right ? n : balance(n.key, n.value, n.left, r);
+        }
+        if (n.left == null) return n.right;
+        if (n.right == null) return n.left;
+        Node<K, V> min = n.right;
+        while (min.left != null) min = min.left;
+        return balance(min.key, min.value, n.left, removeMin(n.right));
+    }
+
+    private static <K, V> Node<K, V> removeMin(Node<K, V> n) {
+        if (n.left == null) return n.right;
+        return balance(n.key, n.value, removeMin(n.left), n.right);
+    }
+
+    // a node over l and r, rotated once or twice if their heights differ by more than one
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> l, Node<K, V> r) {
+        int hl = height(l);
+        int hr = height(r);
+        if (hl > hr + 1) {
+            if (height(l.left) >= height(l.right)) {
+                return new Node<>(l.key, l.value, l.left, new Node<>(key, value, l.right, r));
+            }
+            Node<K, V> m = l.right;
+            return new Node<>(m.key, m.value, new Node<>(l.key, l.value, l.left, m.left), new Node<>(key, value, m.right, r));
+        }
+        if (hr > hl + 1) {
+            if (height(r.right) >= height(r.left)) {
+                return new Node<>(r.key, r.value, new Node<>(key, value, l, r.left), r.right);
+            }
+            Node<K, V> m = r.left;
+            return new Node<>(m.key, m.value, new Node<>(key, value, l, m.left), new Node<>(r.key, r.value, m.right, r.right));
+        }
+        return new Node<>(key, value, l, r);
+    }
+
+    // in-order walk; the stack holds the nodes still to visit along the left spine
+    private static final class InOrder<K, V> implements Iterator<Map.Entry<K, V>> {
+        final Deque<Node<K, V>> stack = new ArrayDeque<>();
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (stack.isEmpty()) throw new NoSuchElementException();
+            Node<K, V> n = stack.pop();
+            for (Node<K, V> c = n.right; c != null; c = c.left) stack.push(c);
+            return n;
+        }
+    }
+}
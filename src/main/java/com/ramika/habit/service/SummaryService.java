@@ -1,22 +1,818 @@
 package com.ramika.habit.service;
 
+import com.ramika.habit.model.Category;
+import com.ramika.habit.model.Habit;
+import com.ramika.habit.model.Status;
+
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
-// Class that deals with math calculations for habits and summarizations
+// Completion analytics over a HabitService's habits, per habit and over all active habits.
+//
+// "Scheduled" counts come straight from the weekly schedules: the number of scheduled days in a
+// range is arithmetic on weekday masks (plus, globally, how many active habits are scheduled on
+// each weekday), O(1) for any range. "Completed" counts (completions on scheduled days) are
+// kept per day in Fenwick trees, one per habit and one for all active habits, so a range sum
+// is two prefix reads and an edit is one point update: O(log days) each.
+//
+// On top of that, week / month / year rollups (completed count and best streak per bucket) are
+// materialized per habit and per category of active habits. A completion change touches the
+// three buckets holding that day and nothing else. Closed buckets (ended before the snapshot
+// day) are saved with the snapshot and taken as-is on the next load.
+//
+// Bulk loads (hydrate, rebuild) of PARALLEL_THRESHOLD habits or more build the per-habit state
+// on the common ForkJoinPool, or the pool the caller runs in: each task loads a slice of the
+// habits into a partial aggregate (its habits, per-day active completions, per-weekday and
+// per-category counts), and partials are merged pairwise on the way up. The build runs without
+// this service's lock (queries answer from the old state meanwhile); only folding the result
+// into the shared state takes the lock, and habits that changed during the build are then
+// redone one by one.
+//
+// The co-completion matrix (CoCompletion) is built on first use and maintained from then on.
+//
+// HabitService keeps it in step after every change, under the lock that serializes writes to
+// the habit; queries can come from any thread. Schedules and statuses apply to the whole
+// history (there's no record of when they changed), as in the rest of the app.
 public class SummaryService {
-    private Map<Long, Map<LocalDate, Boolean>> habitCompletionMap = new HashMap<>();
+    /** Bulk loads of at least this many habits run in parallel. */
+    static final int PARALLEL_THRESHOLD = 1024;
+    private static final int LEAF_SIZE = 128; // habits per fork-join leaf task
+    private static final long TRACKED_BYTES = 400; // a Tracked, its map entry and empty tables
+    private static final long BUCKET_BYTES = 88;   // one rollup: map node, boxed key, int[2]
+
+    private final Map<UUID, Tracked> tracked = new HashMap<>();
+    private DayFenwick activeCompleted = new DayFenwick(LocalDate.now().toEpochDay());
+    private final int[] activeOnWeekday = new int[7]; // Monday = 0: active habits scheduled that day
+    private final Map<Category, CategoryRollups> byCategory = new EnumMap<>(Category.class);
+    private CoCompletion coCompletion; // null until first asked for
+    private Set<UUID> changedDuringLoad; // non-null while a parallel load is built outside the lock
+
+    /** Rollup bucket sizes. Weeks start on Monday. */
+    public enum Bucket {
+        WEEK, MONTH, YEAR;
+
+        // bucket number of an epoch day: weeks since the epoch, year * 12 + month - 1, or the year
+        long key(long day) {
+            return switch (this) {
+                case WEEK  -> Math.floorDiv(day + 3, 7);
+                case MONTH -> {
+                    LocalDate d = LocalDate.ofEpochDay(day);
+                    yield d.getYear() * 12L + d.getMonthValue() - 1;
+                }
+                case YEAR  -> LocalDate.ofEpochDay(day).getYear();
+            };
+        }
+
+        // first epoch day of bucket key
+        long start(long key) {
+            return switch (this) {
+                case WEEK  -> key * 7 - 3;
+                case MONTH -> LocalDate.of((int) Math.floorDiv(key, 12), Math.floorMod(key, 12) + 1, 1).toEpochDay();
+                case YEAR  -> LocalDate.of((int) key, 1, 1).toEpochDay();
+            };
+        }
+
+        // last epoch day of bucket key
+        long end(long key) {
+            return start(key + 1) - 1;
+        }
+    }
+
+    /** One bucket: scheduled days, completions on them, and the longest run of completed scheduled days inside it. */
+    public record Rollup(int scheduled, int completed, int bestStreak) {
+        /** completed / scheduled; 0 when nothing was scheduled. */
+        public double rate() {
+            return SummaryService.rate(completed, scheduled);
+        }
+    }
+
+    // ===== queries =====
+
+    /** Scheduled days of all active habits in [from, to] (a habit scheduled on 3 of them counts 3). */
+    public synchronized int scheduledCount(LocalDate from, LocalDate to) {
+        return scheduledCount(activeOnWeekday, from.toEpochDay(), to.toEpochDay());
+    }
+
+    /** Completions by active habits on their scheduled days in [from, to]. */
+    public synchronized int completedCount(LocalDate from, LocalDate to) {
+        return activeCompleted.range(from.toEpochDay(), to.toEpochDay());
+    }
+
+    /** completedCount / scheduledCount over [from, to]; 0 when nothing was scheduled. */
+    public synchronized double completionRate(LocalDate from, LocalDate to) {
+        return completionRate(from.toEpochDay(), to.toEpochDay());
+    }
+
+    /** completionRate over epoch days [fromDay, toDay], for callers walking many ranges. */
+    public synchronized double completionRate(long fromDay, long toDay) {
+        return rate(activeCompleted.range(fromDay, toDay), scheduledCount(activeOnWeekday, fromDay, toDay));
+    }
+
+    /** completionRate for each day of [from, to]; NaN on days no active habit was scheduled. */
+    public synchronized double[] dailyRates(LocalDate from, LocalDate to) {
+        long first = from.toEpochDay();
+        int n = (int) Math.max(0, to.toEpochDay() - first + 1);
+        double[] out = new double[n];
+        int before = activeCompleted.prefix(first - 1);
+        for (int i = 0; i < n; i++) {
+            int upTo = activeCompleted.prefix(first + i);
+            int scheduled = activeOnWeekday[weekdayIndex(first + i)];
+            out[i] = scheduled == 0 ? Double.NaN : (double) (upTo - before) / scheduled;
+            before = upTo;
+        }
+        return out;
+    }
+
+    /** Earliest day an active habit was completed on schedule; null when there is none. */
+    public synchronized LocalDate firstCompletedDay() {
+        long day = activeCompleted.firstNonZero();
+        return day == Long.MAX_VALUE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    /** Days in [from, to] the habit is scheduled on; 0 for an unknown habit. */
+    public synchronized int scheduledCount(UUID habitId, LocalDate from, LocalDate to) {
+        Tracked t = tracked.get(habitId);
+        return t == null ? 0 : (int) scheduledDays(t.mask, from.toEpochDay(), to.toEpochDay());
+    }
+
+    /** Scheduled days in [from, to] the habit was completed on. */
+    public synchronized int completedCount(UUID habitId, LocalDate from, LocalDate to) {
+        Tracked t = tracked.get(habitId);
+        return t == null || t.completed == null ? 0 : t.completed.range(from.toEpochDay(), to.toEpochDay());
+    }
+
+    public synchronized double completionRate(UUID habitId, LocalDate from, LocalDate to) {
+        return rate(completedCount(habitId, from, to), scheduledCount(habitId, from, to));
+    }
+
+    /** The habit's week / month / year containing date; all zero for an unknown habit. */
+    public synchronized Rollup rollup(UUID habitId, Bucket period, LocalDate date) {
+        Tracked t = tracked.get(habitId);
+        if (t == null) return new Rollup(0, 0, 0);
+        long key = period.key(date.toEpochDay());
+        int[] b = t.buckets.get(period).get(key);
+        int scheduled = (int) scheduledDays(t.mask, period.start(key), period.end(key));
+        return b == null ? new Rollup(scheduled, 0, 0) : new Rollup(scheduled, b[0], b[1]);
+    }
+
+    /**
+     * The week / month / year containing date over the category's active habits: scheduled and
+     * completed are summed, bestStreak is the best of any one habit.
+     */
+    public synchronized Rollup rollup(Category category, Bucket period, LocalDate date) {
+        CategoryRollups c = byCategory.get(category);
+        if (c == null) return new Rollup(0, 0, 0);
+        long key = period.key(date.toEpochDay());
+        int[] b = c.buckets.get(period).get(key);
+        int scheduled = scheduledCount(c.onWeekday, period.start(key), period.end(key));
+        return b == null ? new Rollup(scheduled, 0, 0) : new Rollup(scheduled, b[0], b[1]);
+    }
+
+    /** Pairwise co-completion of all habits, built on the first call and kept current after. */
+    public synchronized CoCompletion coCompletion() {
+        if (coCompletion == null) coCompletion = new CoCompletion(allHabits(), LocalDate.now().toEpochDay());
+        return coCompletion;
+    }
+
+    private List<Habit> allHabits() {
+        List<Habit> all = new ArrayList<>(tracked.size());
+        for (Tracked t : tracked.values()) all.add(t.habit);
+        return all;
+    }
+
+    private static double rate(int completed, int scheduled) {
+        return scheduled == 0 ? 0.0 : (double) completed / scheduled;
+    }
+
+    /** Rough heap footprint of the day trees, rollup tables and co-completion matrix. */
+    synchronized long estimatedBytes() {
+        long bytes = 512 + activeCompleted.estimatedBytes();
+        for (Tracked t : tracked.values()) {
+            bytes += TRACKED_BYTES + tableBytes(t.buckets);
+            if (t.completed != null) bytes += t.completed.estimatedBytes();
+        }
+        for (CategoryRollups c : byCategory.values()) {
+            bytes += TRACKED_BYTES + 40L * c.members.size() + tableBytes(c.buckets);
+        }
+        if (coCompletion != null) bytes += coCompletion.estimatedBytes();
+        return bytes;
+    }
+
+    private static long tableBytes(Map<Bucket, Map<Long, int[]>> buckets) {
+        long n = 0;
+        for (Map<Long, int[]> table : buckets.values()) n += table.size();
+        return n * BUCKET_BYTES;
+    }
+
+    // ===== maintenance (called by HabitService) =====
+
+    /** Start tracking h, replacing whatever was tracked under its id. */
+    synchronized void put(Habit h) {
+        put(h, null);
+    }
+
+    /** put(h), taking h's closed buckets from a snapshot when they still match its history. */
+    synchronized void put(Habit h, ClosedBuckets saved) {
+        Tracked old = tracked.remove(h.getId());
+        untrack(old);
+        Tracked t = new Tracked(h);
+        tracked.put(h.getId(), t);
+
+        if (old != null && old.habit == h && old.mask == t.mask) {
+            // only status or category changed: the per-habit numbers still hold
+            t.completed = old.completed;
+            t.buckets = old.buckets;
+        } else {
+            load(t, saved);
+            if (coCompletion != null) coCompletion.put(h);
+        }
+        track(t);
+    }
+
+    /**
+     * put(h, saved.get(id)) for every habit (the last one wins for a repeated id), on the
+     * fork-join pool when there are PARALLEL_THRESHOLD or more. A parallel load is built
+     * without holding this service's lock, so queries keep answering (from the old state)
+     * until the result is swapped in.
+     */
+    void putAll(Collection<Habit> habits, Map<UUID, ClosedBuckets> saved) {
+        Map<UUID, Habit> latest = new LinkedHashMap<>();
+        for (Habit h : habits) latest.put(h.getId(), h);
+        if (latest.size() < PARALLEL_THRESHOLD) {
+            synchronized (this) {
+                for (Habit h : latest.values()) put(h, saved.get(h.getId()));
+            }
+            return;
+        }
+        Partial p = loadParallel(latest.values(), saved);
+        synchronized (this) {
+            publish(p, saved);
+            if (coCompletion != null) coCompletion.reload(allHabits(), LocalDate.now().toEpochDay());
+        }
+    }
+
+    // build habits' state on the fork-join pool (the caller's, if it runs in one) without
+    // holding the lock; habits changed meanwhile are noted so publish can redo them
+    private Partial loadParallel(Collection<Habit> habits, Map<UUID, ClosedBuckets> saved) {
+        synchronized (this) {
+            changedDuringLoad = new HashSet<>();
+        }
+        Habit[] all = habits.toArray(new Habit[0]);
+        try {
+            LoadTask task = new LoadTask(all, saved, 0, all.length);
+            return ForkJoinTask.inForkJoinPool() ? task.invoke() : ForkJoinPool.commonPool().invoke(task);
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                changedDuringLoad = null;
+            }
+            throw e;
+        }
+    }
+
+    // fold a finished load into the shared state, replacing what was tracked under its ids; caller holds this
+    private void publish(Partial p, Map<UUID, ClosedBuckets> saved) {
+        for (Tracked t : p.tracked) untrack(tracked.put(t.habit.getId(), t));
+        p.activeDays.forEach(activeCompleted::add);
+        for (int w = 0; w < 7; w++) activeOnWeekday[w] += p.onWeekday[w];
+        p.categories.forEach((category, c) ->
+                byCategory.computeIfAbsent(category, k -> new CategoryRollups()).addAll(c));
+
+        Set<UUID> changed = changedDuringLoad;
+        changedDuringLoad = null;
+        for (UUID id : changed) {
+            Tracked t = tracked.remove(id); // the load may have read it mid-change: start over
+            if (t == null) continue;
+            untrack(t);
+            put(t.habit, saved.get(id));
+        }
+    }
+
+    synchronized void remove(UUID id) {
+        untrack(tracked.remove(id));
+        if (coCompletion != null) coCompletion.remove(id);
+    }
+
+    /**
+     * h replaces the habit tracked under its id (HabitService's batch commit, where h is a copy)
+     * and differs from it at most in its fields and its completions on days: switch to h and
+     * apply just those changes rather than reloading its history.
+     */
+    synchronized void replace(Habit h, Collection<Long> days) {
+        Tracked t = tracked.get(h.getId());
+        if (t == null) {
+            put(h);
+            return;
+        }
+        if (t.habit != h) {
+            t.habit = h;
+            if (coCompletion != null) coCompletion.replace(h);
+        }
+        for (long day : days) completionChanged(h, day);
+        refresh(h);
+    }
+
+    /** h's status, category or schedule changed: re-derive its contribution. */
+    synchronized void refresh(Habit h) {
+        if (changedDuringLoad != null) changedDuringLoad.add(h.getId());
+        Tracked t = tracked.get(h.getId());
+        if (t == null || t.habit != h) return;
+        if (t.mask == maskOf(h.getSchedule()) && t.active == (h.getActiveStatus() == Status.ACTIVE)
+                && t.category == h.getCategory()) return;
+        put(h);
+    }
+
+    /** h's completion on day was set or cleared. */
+    synchronized void completionChanged(Habit h, long day) {
+        if (changedDuringLoad != null) changedDuringLoad.add(h.getId());
+        if (coCompletion != null) coCompletion.completionChanged(h, day);
+        Tracked t = tracked.get(h.getId());
+        if (t == null || t.habit != h || !t.isScheduled(day)) return;
+        int now = h.isCompletedOnEpochDay(day) ? 1 : 0;
+        int was = t.completed == null ? 0 : t.completed.get(day);
+        int delta = now - was;
+        if (delta == 0) return;
+        t.count(day, delta);
+        if (t.active) activeCompleted.add(day, delta);
+
+        // the run of completed scheduled days through day, as far as the widest bucket reaches;
+        // only that run changes, so a bucket's best moves only if the run is (or becomes) it
+        Bucket[] periods = Bucket.values();
+        long[] keys = new long[periods.length];
+        long[] starts = new long[periods.length];
+        long[] ends = new long[periods.length];
+        long lo = day;
+        long hi = day;
+        for (int i = 0; i < periods.length; i++) {
+            keys[i] = periods[i].key(day);
+            starts[i] = periods[i].start(keys[i]);
+            ends[i] = periods[i].end(keys[i]);
+            lo = Math.min(lo, starts[i]);
+            hi = Math.max(hi, ends[i]);
+        }
+        long runFrom = t.runStart(day, lo);
+        long runTo = t.runEnd(day, hi);
+
+        CategoryRollups c = t.active ? categoryOf(t) : null;
+        for (int i = 0; i < periods.length; i++) {
+            long from = Math.max(runFrom, starts[i]); // the run, cut to this bucket
+            long to = Math.min(runTo, ends[i]);
+            Map<Long, int[]> table = t.buckets.get(periods[i]);
+            int[] b = table.computeIfAbsent(keys[i], k -> new int[2]);
+            int oldBest = b[1];
+            b[0] += delta;
+            int through = t.scheduledIn(from, to);
+            if (delta > 0) {
+                b[1] = Math.max(oldBest, through);
+            } else if (through == oldBest) {
+                // the best run was split: its halves, or the best run elsewhere in the bucket
+                b[1] = Math.max(Math.max(t.scheduledIn(from, day - 1), t.scheduledIn(day + 1, to)),
+                        Math.max(t.bestStreak(starts[i], from - 1), t.bestStreak(to + 1, ends[i])));
+            }
+            if (b[0] == 0) table.remove(keys[i]);
+            if (c != null) c.changed(periods[i], keys[i], delta, oldBest, b[1]);
+        }
+    }
+
+    /** Drop everything and track habits afresh (after completions were set on them directly). */
+    void rebuild(Collection<Habit> habits) {
+        Partial p = habits.size() >= PARALLEL_THRESHOLD ? loadParallel(habits, Map.of()) : null;
+        synchronized (this) {
+            tracked.clear();
+            activeCompleted = new DayFenwick(LocalDate.now().toEpochDay());
+            Arrays.fill(activeOnWeekday, 0);
+            byCategory.clear();
+            if (p != null) {
+                publish(p, Map.of());
+            } else {
+                CoCompletion cc = coCompletion;
+                coCompletion = null; // reloaded once below rather than patched habit by habit
+                for (Habit h : habits) put(h, null);
+                coCompletion = cc;
+            }
+            if (coCompletion != null) coCompletion.reload(allHabits(), LocalDate.now().toEpochDay());
+        }
+    }
+
+    /** h's buckets that ended before asOf, for the snapshot; null for an unknown habit. */
+    synchronized ClosedBuckets closedBuckets(UUID habitId, long asOf) {
+        Tracked t = tracked.get(habitId);
+        if (t == null) return null;
+        Map<Bucket, long[]> out = new EnumMap<>(Bucket.class);
+        for (Bucket p : Bucket.values()) {
+            long open = p.key(asOf);
+            List<Long> keys = new ArrayList<>();
+            for (Long k : t.buckets.get(p).keySet()) {
+                if (k < open) keys.add(k);
+            }
+            keys.sort(null);
+            long[] flat = new long[keys.size() * 3];
+            int i = 0;
+            for (long k : keys) {
+                int[] b = t.buckets.get(p).get(k);
+                flat[i++] = k;
+                flat[i++] = b[0];
+                flat[i++] = b[1];
+            }
+            out.put(p, flat);
+        }
+        return new ClosedBuckets(t.mask, asOf, out);
+    }
+
+    // fill t's Fenwick tree and buckets from its habit's history; touches nothing shared
+    private static void load(Tracked t, ClosedBuckets saved) {
+        Habit h = t.habit;
+        h.forEachCompletedDay(day -> {
+            if (t.isScheduled(day)) t.count(day, 1);
+        });
+
+        // with saved buckets, only days from the first still-open bucket on are counted here
+        long[] from = new long[Bucket.values().length];
+        Arrays.fill(from, Long.MIN_VALUE);
+        if (saved != null && saved.mask == t.mask) {
+            for (Bucket p : Bucket.values()) {
+                from[p.ordinal()] = p.start(p.key(saved.asOf));
+                long[] flat = saved.buckets.get(p);
+                int sum = 0;
+                for (int i = 0; flat != null && i + 2 < flat.length; i += 3) {
+                    if (flat[i + 1] <= 0 || flat[i] >= p.key(saved.asOf)) continue;
+                    t.buckets.get(p).put(flat[i], new int[] { (int) flat[i + 1], (int) flat[i + 2] });
+                    sum += (int) flat[i + 1];
+                }
+                // the saved counts must add up to what the history holds before that bucket
+                int expected = t.completed == null ? 0 : t.completed.prefix(from[p.ordinal()] - 1);
+                if (sum != expected) {
+                    for (Map<Long, int[]> table : t.buckets.values()) table.clear();
+                    Arrays.fill(from, Long.MIN_VALUE);
+                    break;
+                }
+            }
+        }
+
+        for (Bucket p : Bucket.values()) {
+            long first = from[p.ordinal()];
+            Map<Long, int[]> table = t.buckets.get(p);
+            long[] run = { Long.MIN_VALUE, Long.MIN_VALUE, 0 }; // end of current bucket, last ordinal, length
+            int[][] cur = new int[1][];
+            h.forEachCompletedDay(day -> {
+                if (day < first || !t.isScheduled(day)) return;
+                long ord = t.ordinal(day);
+                if (day > run[0]) {
+                    // days come in order: only look the bucket up when leaving the previous one
+                    long key = p.key(day);
+                    run[0] = p.end(key);
+                    run[2] = 0;
+                    cur[0] = table.computeIfAbsent(key, k -> new int[2]);
+                }
+                run[2] = ord == run[1] + 1 ? run[2] + 1 : 1;
+                run[1] = ord;
+                cur[0][0]++;
+                cur[0][1] = Math.max(cur[0][1], (int) run[2]);
+            });
+        }
+    }
+
+    // add t's contribution to the global counts
+    private void track(Tracked t) {
+        if (!t.active) return;
+        if (t.completed != null) t.completed.forEachNonZero(activeCompleted::add);
+        adjustWeekdays(activeOnWeekday, t.mask, 1);
+        CategoryRollups c = categoryOf(t);
+        if (c != null) c.add(t);
+    }
+
+    // take t's contribution out of the global counts (what t.completed holds, which can lag its
+    // habit's bitmap while a change is on its way to completionChanged)
+    private void untrack(Tracked t) {
+        if (t == null) return;
+        if (t.active && t.completed != null) t.completed.forEachNonZero((day, n) -> activeCompleted.add(day, -n));
+        if (t.active) {
+            adjustWeekdays(activeOnWeekday, t.mask, -1);
+            CategoryRollups c = categoryOf(t);
+            if (c != null) c.remove(t);
+        }
+    }
+
+    private CategoryRollups categoryOf(Tracked t) {
+        return t.category == null ? null : byCategory.computeIfAbsent(t.category, k -> new CategoryRollups());
+    }
+
+    private static void adjustWeekdays(int[] counts, int mask, int delta) {
+        for (int w = 0; w < 7; w++) {
+            if ((mask & (1 << w)) != 0) counts[w] += delta;
+        }
+    }
+
+    // sum over weekdays of (habits scheduled that weekday) x (such days in [from, to])
+    private static int scheduledCount(int[] onWeekday, long from, long to) {
+        long total = 0;
+        for (int w = 0; w < 7; w++) {
+            if (onWeekday[w] != 0) total += onWeekday[w] * scheduledDays(1 << w, from, to);
+        }
+        return (int) total;
+    }
+
+    // days in [from, to] whose weekday is in mask (bit 0 = Monday)
+    static long scheduledDays(int mask, long from, long to) {
+        if (to < from || mask == 0) return 0;
+        long n = to - from + 1;
+        long count = (n / 7) * Integer.bitCount(mask);
+        int start = weekdayIndex(from);
+        for (int i = 0; i < n % 7; i++) {
+            if ((mask & (1 << ((start + i) % 7))) != 0) count++;
+        }
+        return count;
+    }
+
+    // Monday = 0 ... Sunday = 6 (epoch day 0 was a Thursday)
+    static int weekdayIndex(long epochDay) {
+        return Math.floorMod(epochDay + 3, 7);
+    }
+
+    static int maskOf(EnumSet<DayOfWeek> schedule) {
+        int m = 0;
+        if (schedule != null) {
+            for (DayOfWeek d : schedule) m |= 1 << (d.getValue() - 1);
+        }
+        return m;
+    }
+
+    private static Map<Bucket, Map<Long, int[]>> newTables() {
+        Map<Bucket, Map<Long, int[]>> m = new EnumMap<>(Bucket.class);
+        for (Bucket p : Bucket.values()) m.put(p, new HashMap<>());
+        return m;
+    }
+
+    /**
+     * A habit's closed buckets as saved with a snapshot: per period, (key, completed, best streak)
+     * triples in key order, valid for the schedule mask they were computed under.
+     */
+    static final class ClosedBuckets {
+        final int mask;
+        final long asOf; // buckets ended before this epoch day
+        final Map<Bucket, long[]> buckets;
+
+        ClosedBuckets(int mask, long asOf, Map<Bucket, long[]> buckets) {
+            this.mask = mask;
+            this.asOf = asOf;
+            this.buckets = buckets;
+        }
+    }
+
+    /** What is counted for one habit: its schedule, status and category as of the last sync. */
+    private static final class Tracked {
+        Habit habit; // the current object for its id (replace swaps in a batch's copy)
+        final int mask;
+        final int perWeek;
+        final boolean active;
+        final Category category;
+        DayFenwick completed; // completions on scheduled days; null until the first one
+        Map<Bucket, Map<Long, int[]>> buckets = newTables(); // key -> {completed, best streak}
+
+        Tracked(Habit h) {
+            habit = h;
+            mask = maskOf(h.getSchedule());
+            perWeek = Integer.bitCount(mask);
+            active = h.getActiveStatus() == Status.ACTIVE;
+            category = h.getCategory();
+        }
+
+        boolean isScheduled(long day) {
+            return (mask & (1 << weekdayIndex(day))) != 0;
+        }
+
+        // scheduled days before day, from a fixed origin (consecutive scheduled days differ by 1)
+        long ordinal(long day) {
+            return Math.floorDiv(day + 3, 7) * perWeek + Integer.bitCount(mask & ((1 << weekdayIndex(day)) - 1));
+        }
+
+        // scheduled days in [from, to]
+        int scheduledIn(long from, long to) {
+            return to < from ? 0 : (int) (ordinal(to + 1) - ordinal(from));
+        }
+
+        // earliest day >= limit from which every scheduled day before day is completed
+        long runStart(long day, long limit) {
+            long start = day;
+            for (long d = day - 1; d >= limit; d--) {
+                if (!isScheduled(d)) continue;
+                if (!habit.isCompletedOnEpochDay(d)) break;
+                start = d;
+            }
+            return start;
+        }
+
+        // latest day <= limit up to which every scheduled day after day is completed
+        long runEnd(long day, long limit) {
+            long end = day;
+            for (long d = day + 1; d <= limit; d++) {
+                if (!isScheduled(d)) continue;
+                if (!habit.isCompletedOnEpochDay(d)) break;
+                end = d;
+            }
+            return end;
+        }
+
+        // longest run of completed scheduled days within [from, to]
+        int bestStreak(long from, long to) {
+            int best = 0;
+            int run = 0;
+            for (long d = from; d <= to; d++) {
+                if (!isScheduled(d)) continue;
+                run = habit.isCompletedOnEpochDay(d) ? run + 1 : 0;
+                best = Math.max(best, run);
+            }
+            return best;
+        }
+
+        void count(long day, int delta) {
+            if (delta == 0) return;
+            if (completed == null) completed = new DayFenwick(day);
+            completed.add(day, delta);
+        }
+    }
+
+    /** Rollups over the active habits of one category. */
+    private static final class CategoryRollups {
+        final int[] onWeekday = new int[7];
+        final Set<Tracked> members = new HashSet<>();
+        final Map<Bucket, Map<Long, int[]>> buckets = newTables(); // key -> {completed, best streak}
+
+        void add(Tracked t) {
+            members.add(t);
+            adjustWeekdays(onWeekday, t.mask, 1);
+            for (Bucket p : Bucket.values()) {
+                Map<Long, int[]> table = buckets.get(p);
+                t.buckets.get(p).forEach((key, b) -> {
+                    int[] c = table.computeIfAbsent(key, k -> new int[2]);
+                    c[0] += b[0];
+                    c[1] = Math.max(c[1], b[1]);
+                });
+            }
+        }
+
+        void remove(Tracked t) {
+            members.remove(t);
+            adjustWeekdays(onWeekday, t.mask, -1);
+            for (Bucket p : Bucket.values()) {
+                Map<Long, int[]> table = buckets.get(p);
+                t.buckets.get(p).forEach((key, b) -> {
+                    int[] c = table.get(key);
+                    if (c == null) return;
+                    c[0] -= b[0];
+                    if (c[0] <= 0) table.remove(key);
+                    else if (b[1] == c[1]) c[1] = bestOfMembers(p, key);
+                });
+            }
+        }
+
+        // fold in another partial's members (disjoint from these)
+        void addAll(CategoryRollups o) {
+            members.addAll(o.members);
+            for (int w = 0; w < 7; w++) onWeekday[w] += o.onWeekday[w];
+            for (Bucket p : Bucket.values()) {
+                Map<Long, int[]> table = buckets.get(p);
+                o.buckets.get(p).forEach((key, b) -> {
+                    int[] c = table.computeIfAbsent(key, k -> new int[2]);
+                    c[0] += b[0];
+                    c[1] = Math.max(c[1], b[1]);
+                });
+            }
+        }
+
+        // one member's bucket changed by delta completions, its best streak from oldBest to newBest
+        void changed(Bucket p, long key, int delta, int oldBest, int newBest) {
+            Map<Long, int[]> table = buckets.get(p);
+            int[] c = table.computeIfAbsent(key, k -> new int[2]);
+            c[0] += delta;
+            if (c[0] <= 0) table.remove(key);
+            else if (newBest >= c[1]) c[1] = newBest;
+            else if (oldBest == c[1]) c[1] = bestOfMembers(p, key);
+        }
+
+        private int bestOfMembers(Bucket p, long key) {
+            int best = 0;
+            for (Tracked m : members) {
+                int[] b = m.buckets.get(p).get(key);
+                if (b != null) best = Math.max(best, b[1]);
+            }
+            return best;
+        }
+    }
+
+    /** What one slice of a bulk load adds to the shared state. */
+    private static final class Partial {
+        final List<Tracked> tracked = new ArrayList<>();
+        final DayCounts activeDays = new DayCounts();
+        final int[] onWeekday = new int[7];
+        final Map<Category, CategoryRollups> categories = new EnumMap<>(Category.class);
+
+        void add(Tracked t) {
+            tracked.add(t);
+            if (!t.active) return;
+            // the same days untrack takes back out, whatever the habit's bitmap does meanwhile
+            if (t.completed != null) t.completed.forEachNonZero(activeDays::add);
+            adjustWeekdays(onWeekday, t.mask, 1);
+            if (t.category != null) categories.computeIfAbsent(t.category, k -> new CategoryRollups()).add(t);
+        }
+
+        Partial merge(Partial o) {
+            tracked.addAll(o.tracked);
+            activeDays.addAll(o.activeDays);
+            for (int w = 0; w < 7; w++) onWeekday[w] += o.onWeekday[w];
+            o.categories.forEach((category, c) ->
+                    categories.computeIfAbsent(category, k -> new CategoryRollups()).addAll(c));
+            return this;
+        }
+    }
+
+    /** Loads all[from, to) into a Partial, splitting in halves down to LEAF_SIZE habits. */
+    private static final class LoadTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L; // never serialized; RecursiveTask is Serializable
+
+        private final transient Habit[] all;
+        private final transient Map<UUID, ClosedBuckets> saved;
+        private final int from;
+        private final int to;
+
+        LoadTask(Habit[] all, Map<UUID, ClosedBuckets> saved, int from, int to) {
+            this.all = all;
+            this.saved = saved;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= LEAF_SIZE) {
+                Partial p = new Partial();
+                for (int i = from; i < to; i++) {
+                    Tracked t = new Tracked(all[i]);
+                    load(t, saved.get(all[i].getId()));
+                    p.add(t);
+                }
+                return p;
+            }
+            int mid = (from + to) >>> 1;
+            LoadTask left = new LoadTask(all, saved, from, mid);
+            left.fork();
+            Partial right = new LoadTask(all, saved, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /** Plain per-day counts over a window of epoch days that grows to fit. */
+    private static final class DayCounts {
+        private long base;
+        private int[] counts = new int[0];
+
+        void add(long day, int n) {
+            if (counts.length == 0) {
+                base = day - 256;
+                counts = new int[512];
+            }
+            if (day < base || day >= base + counts.length) {
+                // at least double, with the slack on the side that grew
+                long end = base + counts.length;
+                int size = (int) Math.max(Math.max(end, day + 1) - Math.min(base, day), 2L * counts.length);
+                long newBase = day < base ? end - size : base;
+                int[] next = new int[size];
+                System.arraycopy(counts, 0, next, (int) (base - newBase), counts.length);
+                base = newBase;
+                counts = next;
+            }
+            counts[(int) (day - base)] += n;
+        }
+
+        void addAll(DayCounts o) {
+            for (int i = 0; i < o.counts.length; i++) {
+                if (o.counts[i] != 0) add(o.base + i, o.counts[i]);
+            }
+        }
 
-    public void markHabitCompleted(Long habitId, LocalDate date) {
-        habitCompletionMap
-                .computeIfAbsent(habitId, k -> new HashMap<>())
-                .put(date, true);
+        void forEach(DayCount action) {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) action.accept(base + i, counts[i]);
+            }
+        }
     }
 
-    public boolean isHabitCompleted(Long habitId, LocalDate date) {
-        return habitCompletionMap
-                .getOrDefault(habitId, new HashMap<>())
-                .getOrDefault(date, false);
+    /** A day and its count, as handed out by DayCounts and DayFenwick. */
+    interface DayCount {
+        void accept(long day, int n);
     }
 }
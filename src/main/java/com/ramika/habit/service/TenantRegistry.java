@@ -0,0 +1,214 @@
+package com.ramika.habit.service;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Hosts one HabitService per tenant (user id), loaded on first use and kept in memory while
+ * the estimated footprint of the resident tenants fits memoryBudgetBytes.
+ *
+ * Tenants are spread over SEGMENTS by a hash of their id. Each segment has its own lock,
+ * LRU order and share of the budget, so tenants in different segments never contend, and
+ * each tenant's service has its own locks and files under root/<xx>/<tenantId>/.
+ *
+ * acquire(id) returns a Lease that pins the tenant; a pinned tenant is never evicted. When
+ * the last lease of a segment's tenant is closed and the segment is over budget, the least
+ * recently used unpinned tenants are closed (their pending writes flushed) and dropped; the
+ * next acquire loads them from disk again.
+ *
+ *   try (TenantRegistry.Lease lease = registry.acquire("alice")) {
+ *       lease.service().markHabitCompletedToday(id);
+ *   }
+ */
+public final class TenantRegistry implements AutoCloseable {
+    private static final int SEGMENTS = 16;
+    private static final Pattern TENANT_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    private final Path root;
+    private final Consumer<Persistence> setup;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private volatile boolean closed;
+
+    /**
+     * @param root              directory holding every tenant's files
+     * @param memoryBudgetBytes estimated heap the resident tenants may use (split per segment)
+     * @param setup             configures each tenant's Persistence (codec, journal, write-behind)
+     *                          before its data is loaded
+     */
+    public TenantRegistry(Path root, long memoryBudgetBytes, Consumer<Persistence> setup) {
+        this.root = root;
+        this.setup = setup == null ? p -> {} : setup;
+        long perSegment = Math.max(1, memoryBudgetBytes / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) segments[i] = new Segment(perSegment);
+    }
+
+    /** Pin tenantId's service, loading it from disk if it isn't resident. Close the lease when done. */
+    public Lease acquire(String tenantId) {
+        if (tenantId == null || !TENANT_ID.matcher(tenantId).matches()
+                || tenantId.equals(".") || tenantId.equals("..")) {
+            throw new IllegalArgumentException("invalid tenant id: " + tenantId);
+        }
+        int hash = spread(tenantId.hashCode());
+        Segment seg = segments[hash & (SEGMENTS - 1)];
+
+        Tenant t;
+        synchronized (seg) {
+            if (closed) throw new IllegalStateException("registry closed");
+            t = seg.tenants.get(tenantId); // also moves it to the most recently used end
+            if (t == null) {
+                t = new Tenant(tenantId, root.resolve(String.format("%02x", hash & 0xff)).resolve(tenantId));
+                seg.tenants.put(tenantId, t);
+            }
+            t.pins++;
+        }
+
+        try {
+            return new Lease(seg, t, t.load(setup));
+        } catch (RuntimeException | Error e) {
+            release(seg, t);
+            throw e;
+        }
+    }
+
+    /** Write every resident tenant's pending changes to disk. */
+    public void flushAll() {
+        for (Segment seg : segments) {
+            List<HabitService> loaded = new ArrayList<>();
+            synchronized (seg) {
+                for (Tenant t : seg.tenants.values()) {
+                    if (t.service != null) loaded.add(t.service);
+                }
+            }
+            for (HabitService s : loaded) s.getPersistence().flush();
+        }
+    }
+
+    /** Number of tenants currently held in memory. */
+    public int residentCount() {
+        int n = 0;
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                n += seg.tenants.size();
+            }
+        }
+        return n;
+    }
+
+    /** Estimated heap used by resident tenants, as of their last release. */
+    public long residentBytes() {
+        long bytes = 0;
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                bytes += seg.bytes;
+            }
+        }
+        return bytes;
+    }
+
+    /** Close every resident tenant (flushing its writes); acquire fails afterwards. */
+    @Override
+    public void close() {
+        closed = true;
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                for (Tenant t : seg.tenants.values()) {
+                    if (t.service != null) t.service.close();
+                }
+                seg.tenants.clear();
+                seg.bytes = 0;
+            }
+        }
+    }
+
+    private void release(Segment seg, Tenant t) {
+        synchronized (seg) {
+            t.pins--;
+            long now = t.service == null ? 0 : t.service.estimatedBytes();
+            seg.bytes += now - t.bytes;
+            t.bytes = now;
+            evictOverBudget(seg);
+        }
+    }
+
+    // caller holds seg. Closing flushes under the segment lock, so a tenant acquired again
+    // right after eviction always reads files that already hold its last changes.
+    private static void evictOverBudget(Segment seg) {
+        Iterator<Tenant> lru = seg.tenants.values().iterator();
+        while (seg.bytes > seg.budget && lru.hasNext()) {
+            Tenant t = lru.next();
+            if (t.pins > 0) continue;
+            if (t.service != null) t.service.close();
+            seg.bytes -= t.bytes;
+            lru.remove();
+        }
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /** A pinned tenant: use service() until close(). */
+    public final class Lease implements AutoCloseable {
+        private final Segment segment;
+        private final Tenant tenant;
+        private final HabitService service;
+        private boolean released;
+
+        private Lease(Segment segment, Tenant tenant, HabitService service) {
+            this.segment = segment;
+            this.tenant = tenant;
+            this.service = service;
+        }
+
+        public String tenantId() { return tenant.id; }
+
+        public HabitService service() { return service; }
+
+        @Override
+        public synchronized void close() {
+            if (released) return;
+            released = true;
+            release(segment, tenant);
+        }
+    }
+
+    /** One slice of the tenants: its own lock (the segment itself), LRU order and budget. */
+    private static final class Segment {
+        final long budget;
+        final LinkedHashMap<String, Tenant> tenants = new LinkedHashMap<>(16, 0.75f, true);
+        long bytes; // sum of Tenant.bytes; guarded by this
+
+        Segment(long budget) {
+            this.budget = budget;
+        }
+    }
+
+    private static final class Tenant {
+        final String id;
+        final Path dir;
+        volatile HabitService service; // set once by load()
+        int pins;                      // guarded by the segment
+        long bytes;                    // guarded by the segment
+
+        Tenant(String id, Path dir) {
+            this.id = id;
+            this.dir = dir;
+        }
+
+        // first caller loads; others for the same tenant wait for it here, not on the segment
+        synchronized HabitService load(Consumer<Persistence> setup) {
+            if (service == null) {
+                HabitService s = new HabitService(dir);
+                setup.accept(s.getPersistence());
+                s.getPersistence().bootstrapLoad();
+                service = s;
+            }
+            return service;
+        }
+    }
+}
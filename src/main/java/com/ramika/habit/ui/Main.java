@@ -1,6 +1,7 @@
 package com.ramika.habit.ui;
 
 import com.ramika.habit.gui.Gui;
+import com.ramika.habit.service.HabitService;
 import com.ramika.habit.service.MidnightScheduler;   // <<< added
 import com.ramika.habit.service.Persistence;
 import javafx.application.Application;
@@ -10,8 +11,18 @@ public class Main extends Application {
 
     @Override
     public void start(Stage primaryStage) {
+        HabitService habits = HabitService.getInstance();
+        Persistence store = habits.getPersistence();
+        // Compact binary snapshots (JSON files from older versions still load)
+        store.setCodec(Persistence.Codec.BINARY);
+        // Journal small mutations; compact into the snapshot past 256 KB
+        store.enableJournal(256 * 1024);
         // Load saved data before building the UI
-        Persistence.bootstrapLoad();
+        store.bootstrapLoad();
+        // coalesce checkbox bursts into one write, off the FX thread
+        store.enableWriteBehind(500);
+        // checkbox toggles go through one writer thread, applied in batches
+        habits.enableWriterQueue(64);
         new Gui().show(primaryStage);
     }
 
@@ -19,6 +30,11 @@ public class Main extends Application {
     public void stop() {
         // Tidy shutdown of the background scheduler
         MidnightScheduler.stop();
+        // apply anything still queued for the habit writer
+        HabitService habits = HabitService.getInstance();
+        habits.stopWriterQueue();
+        // make sure nothing pending in the write-behind queue is lost
+        habits.getPersistence().flush();
     }
 
     public static void main(String[] args) {
@@ -7,15 +7,23 @@ import com.ramika.habit.exceptions.HabitNotFoundException;
 import com.ramika.habit.model.Category;
 import com.ramika.habit.model.Habit;
 import com.ramika.habit.model.Priority;
+import com.ramika.habit.service.CoCompletion;
+import com.ramika.habit.service.HabitQuery;
 import com.ramika.habit.service.HabitService;
 
 import java.time.DayOfWeek;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.UUID;
 
 public class UserApp {
+    private static final int PAIR_MIN_DAYS = 7; // shared scheduled days before a pair is shown
+    private static final int PAIRS_SHOWN = 10;
+
+    private final HabitService service = HabitService.getInstance();
     private Scanner input;
     public UserApp() {
         runApp();
@@ -59,17 +67,17 @@ public class UserApp {
                 System.out.println("\nYour habit has been added! Anything else?");
             }
             case "v" -> {
-                if (HabitService.getAllHabits().isEmpty()) {
+                if (service.getAllHabits().isEmpty()) {
                     System.out.println("\nYou have no habits - please add a habit first.");
                 } else {
-                    viewHabits(HabitService.getAllHabits());
+                    viewHabits(service.getAllHabits());
                 }
             }
             case "h" -> {
-                if (HabitService.getActiveHabits().isEmpty()) {
+                if (service.getActiveHabits().isEmpty()) {
                     System.out.println("\nYou have no active habits - please add a habit first.");
                 } else {
-                    viewHabits(HabitService.getActiveHabits());
+                    viewHabits(service.getActiveHabits());
                 }
             }
             case "s" -> viewSpecificHabit();
@@ -91,6 +99,8 @@ public class UserApp {
                 removeHabit();
                 System.out.println("Habit deleted - Anything else? ");
             }
+            case "m" -> multiSelect();
+            case "p" -> viewHabitPairs();
             default -> System.out.println("Selection not valid...");
         }
     }
@@ -108,6 +118,8 @@ public class UserApp {
         System.out.println("\tc -> Mark habit complete today");
         System.out.println("\to -> View habits completed today");
         System.out.println("\td -> Delete habit");
+        System.out.println("\tm -> Select several habits (complete / deactivate / delete)");
+        System.out.println("\tp -> See which habits you do together");
         System.out.println("\tq -> quit");
     }
 
@@ -132,7 +144,7 @@ public class UserApp {
         EnumSet<DayOfWeek> schedule = enterDaysOfWeek();
         System.out.println("Chosen Schedule: " + schedule);
 
-        HabitService.createHabit(title, priority, category, schedule);
+        service.createHabit(title, priority, category, schedule);
     }
 
     // EFFECTS: Displays all habits in collection of habits given
@@ -153,7 +165,7 @@ public class UserApp {
         do {
             System.out.println("Enter habit name");
             String habitName = input.next().toLowerCase();
-            searchID = HabitService.validIdExist(searchID, habitName);
+            searchID = service.validIdExist(searchID, habitName);
         } while (searchID == null);
 
         try {
@@ -170,7 +182,7 @@ public class UserApp {
         do {
             System.out.println("Enter habit name");
             String habitName = input.next().toLowerCase();
-            searchID = HabitService.validIdExist(searchID, habitName);
+            searchID = service.validIdExist(searchID, habitName);
         } while (searchID == null);
 
         boolean foundProperty = false;
@@ -189,17 +201,17 @@ public class UserApp {
                 case "a":
                     System.out.println("Enter the new name: ");
                     String newName = input.next().trim();
-                    HabitService.changeName(searchID, newName);
+                    service.changeName(searchID, newName);
                     foundProperty = true;
                     break;
                 case "b":
                     Priority priorityChosen = enterNewPriority();
-                    HabitService.changePriority(searchID, priorityChosen);
+                    service.changePriority(searchID, priorityChosen);
                     foundProperty = true;
                     break;
                 case "c":
                     Category categoryChosen = enterNewCategory();
-                    HabitService.changeCategory(searchID, categoryChosen);
+                    service.changeCategory(searchID, categoryChosen);
                     foundProperty = true;
                     break;
                 default:
@@ -301,11 +313,11 @@ public class UserApp {
         do {
             System.out.println("Enter habit name");
             String habitName = input.next().toLowerCase();
-            searchID = HabitService.validIdExist(searchID, habitName);
+            searchID = service.validIdExist(searchID, habitName);
         } while (searchID == null);
 
         try {
-            HabitService.removeHabit(searchID);
+            service.removeHabit(searchID);
         } catch (HabitNotFoundException e) {
             System.out.println("error: habit doesn't exist");
         }
@@ -316,11 +328,11 @@ public class UserApp {
         do {
             System.out.println("Enter habit name: ");
             String habitName = input.next().toLowerCase();
-            searchID = HabitService.validIdExist(searchID, habitName);
+            searchID = service.validIdExist(searchID, habitName);
         } while (searchID == null);
 
         try {
-            HabitService.deactivateHabit(searchID);
+            service.deactivateHabit(searchID);
         } catch (HabitNotFoundException e) {
             System.out.println("error: habit doesn't exist");
         } catch (AlreadyNotActiveException e) {
@@ -331,13 +343,13 @@ public class UserApp {
 
     // EFFECTS: displays specific habit asked
     private void viewHabit(UUID habitId) throws HabitNotFoundException {
-        if (!HabitService.getAllHabits().containsKey(habitId)) {
+        if (!service.getAllHabits().containsKey(habitId)) {
             throw new HabitNotFoundException();
         } else {
             Habit habit = null;
-            for (UUID id : HabitService.getAllHabits().keySet()) {
+            for (UUID id : service.getAllHabits().keySet()) {
                 if (id.equals(habitId)) {
-                    habit = HabitService.getAllHabits().get(id);
+                    habit = service.getAllHabits().get(id);
                 }
             }
             if (habit != null) {
@@ -346,6 +358,7 @@ public class UserApp {
                 System.out.println("Priority level: " + habit.getPriority());
                 System.out.println("Active? : " + habit.getActiveStatus());
                 System.out.println("Schedule: " + habit.getSchedule());
+                System.out.println("Streak: " + habit.getCurrentStreak() + " (longest " + habit.getLongestStreak() + ")");
                 System.out.println("Completion History: " + habit.getCompletions());
             }
         }
@@ -357,11 +370,11 @@ public class UserApp {
         do {
             System.out.println("Enter habit name: ");
             String habitName = input.next().toLowerCase();
-            searchID = HabitService.validIdExist(searchID, habitName);
+            searchID = service.validIdExist(searchID, habitName);
         } while (searchID == null);
 
         try {
-            HabitService.markHabitCompletedToday(searchID);
+            service.markHabitCompletedToday(searchID);
             System.out.println("Habit marked complete for today - Anything else? ");
         } catch (HabitNotFoundException e) {
             System.out.println("error: habit doesn't exist");
@@ -372,16 +385,101 @@ public class UserApp {
         }
     }
 
+    // MODIFIES: HabitService
+    // EFFECTS: applies one action to several chosen habits, all or nothing
+    private void multiSelect() {
+        List<Habit> shown = new ArrayList<>(service.getActiveHabits().values());
+        if (shown.isEmpty()) {
+            System.out.println("\nYou have no active habits - please add a habit first.");
+            return;
+        }
+        for (int i = 0; i < shown.size(); i++) {
+            System.out.println((i + 1) + " - " + shown.get(i).getName());
+        }
+
+        List<UUID> chosen = new ArrayList<>();
+        while (chosen.isEmpty()) {
+            System.out.println("Enter habit numbers separated by commas (e.g. 1,3,4): ");
+            for (String part : nextNonBlankLine().split(",")) {
+                try {
+                    int n = Integer.parseInt(part.trim());
+                    if (n >= 1 && n <= shown.size() && !chosen.contains(shown.get(n - 1).getId())) {
+                        chosen.add(shown.get(n - 1).getId());
+                    }
+                } catch (NumberFormatException e) {
+                    // skip anything that isn't a number
+                }
+            }
+            if (chosen.isEmpty()) System.out.println("error: please choose at least one listed habit.");
+        }
+
+        String action = "";
+        while (!action.equals("a") && !action.equals("b") && !action.equals("c")) {
+            System.out.println("a - mark complete today");
+            System.out.println("b - make inactive");
+            System.out.println("c - delete");
+            action = input.next().toLowerCase();
+            input.nextLine(); // rest of the answer's line, so it doesn't reach the next prompt
+        }
+
+        String chosenAction = action;
+        try {
+            service.batch(ops -> {
+                for (UUID id : chosen) {
+                    switch (chosenAction) {
+                        case "a" -> ops.setCompletedToday(id, true);
+                        case "b" -> ops.deactivate(id);
+                        default  -> ops.remove(id);
+                    }
+                }
+            });
+            System.out.println(chosen.size() + " habit(s) updated - Anything else? ");
+        } catch (HabitNotFoundException e) {
+            System.out.println("error: a habit doesn't exist - nothing was changed");
+        } catch (HabitAlreadyCompleteException e) {
+            System.out.println("error: a habit was already completed today - nothing was changed");
+        } catch (HabitNotActiveTodayException e) {
+            System.out.println("error: a habit isn't scheduled today - nothing was changed");
+        } catch (AlreadyNotActiveException e) {
+            System.out.println("error: a habit is already not active - nothing was changed");
+        }
+    }
+
+    // EFFECTS: displays the habits most often completed together, strongest pairs first
+    private void viewHabitPairs() {
+        Map<UUID, Habit> all = service.getAllHabits();
+        int shown = 0;
+        System.out.println();
+        for (CoCompletion.Pair p : service.getSummary().coCompletion().pairs(PAIR_MIN_DAYS)) {
+            Habit given = all.get(p.given());
+            Habit also = all.get(p.also());
+            if (given == null || also == null) continue;
+            System.out.printf("On days you do %s you also do %s %d%% of the time (%d of %d days)%n",
+                    given.getName(), also.getName(), Math.round(p.rate() * 100), p.together(), p.givenDays());
+            if (++shown == PAIRS_SHOWN) break;
+        }
+        if (shown == 0) {
+            System.out.println("Not enough history yet - complete habits on the same days for a week or so.");
+        }
+    }
+
+    // EFFECTS: returns the next line with something on it; the end of a line left over by an
+    //          earlier input.next() reads as blank and is skipped
+    private String nextNonBlankLine() {
+        String line;
+        do {
+            line = input.nextLine();
+        } while (line.isBlank());
+        return line;
+    }
+
     // EFFECTS: displays active habits completed today
     private void viewHabitsCompletedToday() {
-        boolean found = false;
-        for (Habit habit : HabitService.getActiveHabits().values()) {
-            if (habit.findCompletionByDate(java.time.LocalDate.now()) != null) {
-                System.out.println("Habit: " + habit.getName());
-                found = true;
-            }
+        List<Habit> done = service.query(HabitQuery.active().and(HabitQuery.doneToday()));
+        for (Habit habit : done) {
+            System.out.println("Habit: " + habit.getName());
         }
-        if (!found) {
+        if (done.isEmpty()) {
             System.out.println("No habits completed today.");
         }
     }